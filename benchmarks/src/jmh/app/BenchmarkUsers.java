@@ -0,0 +1,61 @@
+package src.jmh.app;
+
+import src.main.app.User;
+import src.main.app.UserRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Team Project -- BenchmarkUsers
+ *
+ * Builds the user populations the benchmarks run against. Users are registered
+ * straight into the shared UserRegistry, skipping User.addUser, so setting up a
+ * million users does not also queue background saves of the database.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+final class BenchmarkUsers {
+    private BenchmarkUsers() {
+    }
+
+    static User create(String username) {
+        return new User("Bench " + username, username, "password", "Benchmark user", "bench.png");
+    }
+
+    /**
+     * Replaces every registered user with a fresh population.
+     *
+     * @param prefix Username prefix; user i is named prefix + i.
+     * @param count  How many users to register.
+     * @return The registered users, in order.
+     */
+    static List<User> populate(String prefix, int count) {
+        UserRegistry registry = UserRegistry.getShared();
+        registry.clear();
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = create(prefix + i);
+            registry.register(user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Unregisters users and forgets their IDs, so one trial's population does not
+     * stay on the heap during the next.
+     *
+     * @param users The users to drop.
+     */
+    static void release(List<User> users) {
+        UserRegistry registry = UserRegistry.getShared();
+        registry.clear();
+        for (User user : users) {
+            registry.release(user);
+        }
+        users.clear();
+    }
+}
@@ -0,0 +1,84 @@
+package src.jmh.app;
+
+import org.openjdk.jmh.annotations.*;
+import src.main.app.FriendsDB;
+import src.main.app.User;
+import src.main.app.UserRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Team Project -- FriendsBenchmark
+ *
+ * Measures FriendsDB.isFriend and FriendsDB.isBlocked for one user with a
+ * parameterized number of friends and as many blocked users, as happens for a
+ * celebrity account. Probes cycle through the friends, the blocked users and as
+ * many strangers, so a third of them hit each list.
+ *
+ * Approving and blocking save the user database every time, so the graph is built
+ * before the users are registered; each of those saves then writes an empty list.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dchat.log.level=WARN"})
+public class FriendsBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int friends;
+
+    private List<User> population;
+    private FriendsDB owner;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserRegistry.getShared().clear();
+        User celebrity = BenchmarkUsers.create("celebrity");
+        owner = celebrity.getFriendsDB();
+        probes = new User[friends * 3];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = BenchmarkUsers.create("fan" + i);
+        }
+        for (int i = 0; i < friends; i++) {
+            probes[i].getFriendsDB().sendFriendRequest(celebrity);
+            owner.approveFriendRequest(probes[i]);
+            owner.blockUser(probes[friends + i]);
+        }
+        population = new ArrayList<>(probes.length + 1);
+        population.add(celebrity);
+        population.addAll(List.of(probes));
+        for (User user : population) {
+            UserRegistry.getShared().register(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUsers.release(population);
+    }
+
+    private User nextProbe() {
+        int index = next;
+        next = index + 1 == probes.length ? 0 : index + 1;
+        return probes[index];
+    }
+
+    @Benchmark
+    public boolean isFriend() {
+        return owner.isFriend(nextProbe());
+    }
+
+    @Benchmark
+    public boolean isBlocked() {
+        return owner.isBlocked(nextProbe());
+    }
+}
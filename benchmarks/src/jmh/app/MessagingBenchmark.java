@@ -0,0 +1,63 @@
+package src.jmh.app;
+
+import org.openjdk.jmh.annotations.*;
+import src.main.app.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Team Project -- MessagingBenchmark
+ *
+ * Measures MessagingDB.addMessage and MessagingDB.getMessages on a conversation
+ * that already holds a parameterized number of messages. addMessage keeps appending
+ * to the same conversation, so each trial starts from a fresh pair of users.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dchat.log.level=WARN"})
+public class MessagingBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int messages;
+
+    private final List<User> population = new ArrayList<>();
+    private User alice;
+    private User bob;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        alice = BenchmarkUsers.create("alice" + System.nanoTime());
+        bob = BenchmarkUsers.create("bob" + System.nanoTime());
+        population.add(alice);
+        population.add(bob);
+        alice.getFriendsDB().sendFriendRequest(bob);
+        bob.getFriendsDB().approveFriendRequest(alice);
+        for (int i = 0; i < messages; i++) {
+            (i % 2 == 0 ? alice : bob).getMessagingDB()
+                    .addMessage("Message number " + i + " in the history", i % 2 == 0 ? bob : alice);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUsers.release(population);
+    }
+
+    @Benchmark
+    public boolean addMessage() {
+        return alice.getMessagingDB().addMessage("Are we still on for lunch?", bob);
+    }
+
+    @Benchmark
+    public List<String> getMessages() {
+        return bob.getMessagingDB().getMessages(alice);
+    }
+}
@@ -0,0 +1,53 @@
+package src.jmh.app;
+
+import org.openjdk.jmh.annotations.*;
+import src.main.app.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Team Project -- PersistenceBenchmark
+ *
+ * Measures one User.saveUsersToFile and one User.loadUsersFromFile of the whole user
+ * database, in milliseconds per call, as the number of users grows. Files are
+ * written to the working directory, which the Gradle jmh task sets to
+ * benchmarks/build/jmh-run.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dchat.log.level=WARN"})
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private List<User> population;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        population = BenchmarkUsers.populate("persist", users);
+        User.saveUsersToFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUsers.release(population);
+    }
+
+    @Benchmark
+    public void saveUsersToFile() {
+        User.saveUsersToFile();
+    }
+
+    @Benchmark
+    public void loadUsersFromFile() {
+        User.loadUsersFromFile();
+    }
+}
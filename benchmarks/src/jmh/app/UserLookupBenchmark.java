@@ -0,0 +1,76 @@
+package src.jmh.app;
+
+import org.openjdk.jmh.annotations.*;
+import src.main.app.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Team Project -- UserLookupBenchmark
+ *
+ * Measures User.getUserByUsername and User.checkUserNameAvailability as the number
+ * of registered users grows. Lookups cycle through every registered username so
+ * the whole table is touched, not one hot entry; misses use names nobody has.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dchat.log.level=WARN"})
+public class UserLookupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private List<User> population;
+    private String[] names;
+    private String[] missing;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        population = BenchmarkUsers.populate("lookup", users);
+        names = new String[users];
+        missing = new String[users];
+        for (int i = 0; i < users; i++) {
+            names[i] = population.get(i).getUsername();
+            missing[i] = "absent" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkUsers.release(population);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == users ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public User getUserByUsername() {
+        return User.getUserByUsername(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public User getUserByUsernameMiss() {
+        return User.getUserByUsername(missing[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean checkUserNameAvailabilityTaken() {
+        return User.checkUserNameAvailability(names[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean checkUserNameAvailabilityFree() {
+        return User.checkUserNameAvailability(missing[nextIndex()]);
+    }
+}
@@ -163,7 +163,7 @@ public class AppGUI extends JFrame implements AppGUIInterface {
      */
     private void refreshUserList() {
         userListModel.clear();
-        for (User u : User.getAllUsers()) {
+        for (User u : UserRegistry.getShared().getUsers()) {
             if (!u.equals(currentUser) && !currentUser.getFriendsDB().isBlocked(u)) {
                 userListModel.addElement(u.getUsername());
             }
@@ -391,7 +391,7 @@ public class AppGUI extends JFrame implements AppGUIInterface {
         String query = JOptionPane.showInputDialog(this, "Enter username or name to search:", "Search Users", JOptionPane.QUESTION_MESSAGE);
         if (query != null && !query.trim().isEmpty()) {
             List<User> results = new ArrayList<>();
-            for (User u : User.getAllUsers()) {
+            for (User u : UserRegistry.getShared().getUsers()) {
                 if (!u.equals(currentUser) &&
                         !currentUser.getFriendsDB().isBlocked(u) &&
                         (u.getUsername().toLowerCase().contains(query.toLowerCase()) ||
@@ -0,0 +1,172 @@
+package src.main.app;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AuthExecutor
+ *
+ * Runs credential checks on a small pool of their own, sized separately from the
+ * connection threads, so a reconnect storm can only ever keep that many threads busy
+ * hashing passwords while chat traffic carries on. The queue in front of the pool is
+ * bounded: once it is full a login is turned away at once with an estimate of when to
+ * retry, rather than waiting behind everybody else.
+ *
+ * Pool size and queue limit come from -Dchat.auth.threads and -Dchat.auth.queue.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class AuthExecutor implements AuthExecutorInterface {
+    private final ThreadPoolExecutor pool;
+    private final int threads;
+    private final LongAdder completed;
+    private final LongAdder rejected;
+    private final LongAdder totalWaitNanos;
+    private final LongAdder totalRunNanos;
+    private final AtomicLong maxLatencyNanos;
+
+    public static final long MIN_RETRY_AFTER_MILLIS = 50;
+    private static final AuthExecutor shared = new AuthExecutor(
+            Integer.getInteger("chat.auth.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+            Integer.getInteger("chat.auth.queue", 64));
+
+    static {
+        Metrics metrics = Metrics.getShared();
+        metrics.gauge("auth.queue_depth", shared::getQueueDepth);
+        metrics.gauge("auth.active", shared::getActiveCount);
+        metrics.gauge("auth.completed", shared::getCompletedCount);
+        metrics.gauge("auth.rejected", shared::getRejectedCount);
+        metrics.gauge("auth.latency_avg_us", () -> Math.round(shared.getAverageLatencyMillis() * 1000));
+    }
+
+    public AuthExecutor(int threads, int queueLimit) {
+        this.threads = threads;
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread thread = new Thread(r, "auth-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.completed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.totalWaitNanos = new LongAdder();
+        this.totalRunNanos = new LongAdder();
+        this.maxLatencyNanos = new AtomicLong();
+    }
+
+    /**
+     * Returns the executor used by the login handler.
+     *
+     * @return The shared executor.
+     */
+    public static AuthExecutor getShared() {
+        return shared;
+    }
+
+    /**
+     * Queues a credential check.
+     *
+     * @param check The check to run.
+     * @return A future completed with the check's result.
+     * @throws RejectedExecutionException If the queue is full; the caller should tell the
+     *                                    client to retry after getRetryAfterMillis().
+     */
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> check) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> {
+                long startedAt = System.nanoTime();
+                T value = null;
+                Throwable failure = null;
+                try {
+                    value = check.call();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                // Record before completing, so a caller that sees the result also sees it counted.
+                long finishedAt = System.nanoTime();
+                totalWaitNanos.add(startedAt - queuedAt);
+                totalRunNanos.add(finishedAt - startedAt);
+                maxLatencyNanos.accumulateAndGet(finishedAt - queuedAt, Math::max);
+                completed.increment();
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Estimates how long a rejected client should wait: the time the pool needs to work
+     * through its current queue at the average check duration seen so far.
+     *
+     * @return The suggested retry delay in milliseconds.
+     */
+    @Override
+    public long getRetryAfterMillis() {
+        long done = completed.sum();
+        long averageNanos = done == 0 ? 0 : totalRunNanos.sum() / done;
+        long drainMillis = TimeUnit.NANOSECONDS.toMillis(averageNanos * (getQueueDepth() + threads) / threads);
+        return Math.max(MIN_RETRY_AFTER_MILLIS, drainMillis);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The average time checks spent queued before running, in milliseconds.
+     */
+    @Override
+    public double getAverageWaitMillis() {
+        long done = completed.sum();
+        return done == 0 ? 0 : totalWaitNanos.sum() / (double) done / 1_000_000;
+    }
+
+    /**
+     * @return The average time from queueing a check to its result, in milliseconds.
+     */
+    @Override
+    public double getAverageLatencyMillis() {
+        long done = completed.sum();
+        return done == 0 ? 0 : (totalWaitNanos.sum() + totalRunNanos.sum()) / (double) done / 1_000_000;
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,24 @@
+package src.main.app;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Team Project -- AuthExecutorInterface
+ *
+ * Interface for the AuthExecutor class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface AuthExecutorInterface {
+    <T> CompletableFuture<T> submit(Callable<T> check);
+    long getRetryAfterMillis();
+    int getQueueDepth();
+    int getActiveCount();
+    long getCompletedCount();
+    long getRejectedCount();
+    double getAverageWaitMillis();
+    double getAverageLatencyMillis();
+    double getMaxLatencyMillis();
+}
@@ -0,0 +1,126 @@
+package src.main.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * ChatEvents
+ *
+ * Java Flight Recorder events for the server's hot paths: command dispatch, user saves,
+ * new messages, pushes and broadcasts. They show up next to the JVM's own GC, lock and
+ * I/O events in a recording, so a slow command can be matched to what the JVM was doing.
+ *
+ * While no recording is running, begin() and shouldCommit() are close to free and the
+ * fields are never filled in. Start a recording with the admin RECORDING command or
+ * with -Dchat.jfr=true.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public final class ChatEvents {
+    private ChatEvents() {
+    }
+
+    @Name("chat.Command")
+    @Label("Command")
+    @Category({"Chat", "Commands"})
+    @Description("One command read from a client, from dispatch to reply")
+    @StackTrace(false)
+    public static class Command extends Event {
+        @Label("Command")
+        public String command;
+
+        @Label("User")
+        public String user;
+
+        @Label("Remote Address")
+        public String remoteAddress;
+
+        @Label("Payload Size")
+        @DataAmount
+        public int payloadSize;
+
+        @Label("Mailbox Wait")
+        @Description("Time spent queued behind the user's other commands")
+        @Timespan
+        public long queueWait;
+    }
+
+    @Name("chat.SaveUsers")
+    @Label("Save Users")
+    @Category({"Chat", "Persistence"})
+    @StackTrace(false)
+    public static class SaveUsers extends Event {
+        @Label("Users")
+        public int userCount;
+
+        @Label("File Size")
+        @DataAmount
+        public long fileSize;
+
+        @Label("Lock Wait")
+        @Description("Time spent waiting for another save to finish")
+        @Timespan
+        public long lockWait;
+    }
+
+    @Name("chat.AddMessage")
+    @Label("Add Message")
+    @Category({"Chat", "Messages"})
+    @StackTrace(false)
+    public static class AddMessage extends Event {
+        @Label("Sender")
+        public String sender;
+
+        @Label("Recipient")
+        public String recipient;
+
+        @Label("Payload Size")
+        @DataAmount
+        public int payloadSize;
+
+        @Label("Stored")
+        public boolean stored;
+    }
+
+    @Name("chat.Push")
+    @Label("Push")
+    @Category({"Chat", "Fan-out"})
+    @StackTrace(false)
+    public static class Push extends Event {
+        @Label("Recipient")
+        public String recipient;
+
+        @Label("Payload Size")
+        @DataAmount
+        public int payloadSize;
+
+        @Label("Outcome")
+        @Description("pushed, stored in the offline inbox, or dropped")
+        public String outcome;
+
+        @Label("Lock Wait")
+        @Description("Time spent waiting for the recipient's inbox lock")
+        @Timespan
+        public long lockWait;
+    }
+
+    @Name("chat.Broadcast")
+    @Label("Broadcast")
+    @Category({"Chat", "Fan-out"})
+    @StackTrace(false)
+    public static class Broadcast extends Event {
+        @Label("Payload Size")
+        @DataAmount
+        public int payloadSize;
+
+        @Label("Recipients")
+        public int recipients;
+    }
+}
@@ -19,6 +19,8 @@ public class Client implements Runnable {
     private BufferedReader in;
     private PrintWriter out;
     private volatile boolean running = true;
+    private long lastDelivered;
+    private boolean ackPending;
 
     public Client(String host, int port, ClientListener listener) throws IOException {
         this.host = host;
@@ -36,6 +38,7 @@ public class Client implements Runnable {
         socket = new Socket(host, port);
         in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
         out = new PrintWriter(socket.getOutputStream(), true);
+        out.println("ENABLE_ACKS");
     }
 
     @Override
@@ -43,9 +46,31 @@ public class Client implements Runnable {
         try {
             String message;
             while (running && (message = in.readLine()) != null) {
-                if (listener != null) {
-                    listener.onMessageReceived(message);
+                if (ackPending && !message.startsWith("DELIVER,")) {
+                    // A burst of pushes ended with other lines already buffered; ack it first.
+                    sendAck();
+                }
+                if (message.equals("PING")) {
+                    sendMessage("PONG"); // Heartbeat from the server; keeps the connection alive.
+                    continue;
+                }
+                if (message.startsWith("DELIVER,")) {
+                    int comma = message.indexOf(',', "DELIVER,".length());
+                    long seq = Long.parseLong(message.substring("DELIVER,".length(), comma));
+                    // Pushes can be resent after a timeout or reconnect; skip ones already handled.
+                    if (seq > lastDelivered) {
+                        lastDelivered = seq;
+                        dispatch(message.substring(comma + 1));
+                    }
+                    // Acks are cumulative, so one ACK per burst of pushes is enough. It is sent
+                    // once nothing more is buffered, or before the next line that is not a push.
+                    ackPending = true;
+                    if (!in.ready()) {
+                        sendAck();
+                    }
+                    continue;
                 }
+                dispatch(message);
             }
         } catch (IOException e) {
             if (running) {
@@ -59,6 +84,26 @@ public class Client implements Runnable {
         }
     }
 
+    private void sendAck() {
+        sendMessage("ACK," + lastDelivered);
+        ackPending = false;
+    }
+
+    private void dispatch(String message) {
+        if (listener == null) {
+            return;
+        }
+        if (message.startsWith("INBOX,")) {
+            // A batch of pushes stored while we were offline: hand them over one by one.
+            String events = message.substring(message.indexOf(',', "INBOX,".length()) + 1);
+            for (String event : events.split(String.valueOf(OfflineInbox.EVENT_SEPARATOR))) {
+                listener.onMessageReceived(event);
+            }
+        } else {
+            listener.onMessageReceived(message);
+        }
+    }
+
     public void sendMessage(String message) {
         if (out != null) {
             out.println(message);
@@ -4,6 +4,15 @@ import java.io.*;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * ClientHandler
@@ -16,31 +25,82 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author Madhavan Prasanna, Rohan Uddaraju
  */
 public class ClientHandler implements Runnable, ClientInterface {
+    private static final Logger log = Logger.get(ClientHandler.class);
     private Socket socket;
     private PrintWriter out;
     private BufferedReader in;
     private User currentUser;
     private Server server;
+    private final String remoteAddress;
+    private volatile long lastActivityMillis;
+    private volatile TimingWheel.Timeout idleCheck;
+    private volatile boolean acksEnabled;
+    private final ConnectionStats stats;
+    // Fair, so frames are written in the order they were queued.
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    // Pushes queued under the recipient's inbox monitor and written once it is released.
+    private final ConcurrentLinkedQueue<String> queuedPushes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_CONNECTIONS_LIMIT = 20;
+    private static final long AUTH_TIMEOUT_MS = 5000;
+    private static final long PING_INTERVAL_MS = Long.getLong("chat.heartbeat.interval", 30_000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("chat.idle.timeout", 90_000);
+
+    /** Every command the handler understands; anything else is reported as UNKNOWN. */
+    public static final List<String> COMMANDS = List.of(
+            "LOGIN", "CREATE_ACCOUNT", "SEND_MESSAGE", "ADD_FRIEND", "APPROVE_FRIEND_REQUEST",
+            "REJECT_FRIEND_REQUEST", "REMOVE_FRIEND", "BLOCK_USER", "UNBLOCK_USER", "SEARCH_USER",
+            "VIEW_USERS", "VIEW_FRIENDS", "VIEW_BLOCKED", "GET_USER_PROFILE", "GET_MESSAGES",
+            "DELETE_MESSAGE", "EDIT_MESSAGE", "SEARCH_MESSAGES", "PING", "ENABLE_ACKS", "ACK", "PONG",
+            "LOGOUT", "EXIT", "STATS",
+            "RECORDING", "CONNECTIONS");
+    private static final Map<String, Histogram> commandLatency = new HashMap<>();
+    private static final Histogram unknownCommandLatency = Metrics.getShared().histogram("command.UNKNOWN");
+    private static final LongAdder rateLimited = Metrics.getShared().counter("commands.rate_limited");
+    private static final LongAdder connectionsOpened = Metrics.getShared().counter("connections.opened");
+    private static final LongAdder connectionsClosed = Metrics.getShared().counter("connections.closed");
+    private static final Histogram presenceFanout = Metrics.getShared().histogram("fanout.presence");
+    private static final Set<String> admins = new HashSet<>(
+            Arrays.asList(System.getProperty("chat.admins", "").split(",")));
+
+    static {
+        for (String command : COMMANDS) {
+            commandLatency.put(command, Metrics.getShared().histogram("command." + command));
+        }
+        Metrics.getShared().gauge("connections.active",
+                () -> connectionsOpened.sum() - connectionsClosed.sum());
+    }
 
     public ClientHandler(Socket socket, Server server) {
         this.socket = socket;
         this.server = server;
         this.currentUser = null;
+        this.remoteAddress = socket == null || socket.getInetAddress() == null
+                ? "unknown" : socket.getInetAddress().getHostAddress();
+        this.stats = new ConnectionStats(remoteAddress);
         try {
-            this.out = new PrintWriter(socket.getOutputStream(), true);
-            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            this.out = new PrintWriter(stats.countOut(socket.getOutputStream()), true);
+            this.in = new BufferedReader(new InputStreamReader(stats.countIn(socket.getInputStream())));
         } catch (IOException e) {
-            System.err.println("Error initializing I/O streams: " + e.getMessage());
+            log.error("Error initializing I/O streams: {}", e.getMessage());
             closeConnections();
         }
     }
 
     @Override
     public void run() {
+        connectionsOpened.increment();
+        stats.register();
+        lastActivityMillis = System.currentTimeMillis();
+        scheduleIdleCheck(PING_INTERVAL_MS);
         try {
             String clientRequest;
             while ((clientRequest = in.readLine()) != null) {
-                System.out.println("Received from client: " + clientRequest);
+                lastActivityMillis = System.currentTimeMillis();
+                stats.frameIn();
                 String[] requestParts = clientRequest.split(",", 3);
                 if (requestParts.length < 1) {
                     sendMessage("ERROR,Invalid command");
@@ -48,67 +108,51 @@ public class ClientHandler implements Runnable, ClientInterface {
                 }
 
                 String command = requestParts[0].toUpperCase();
+                // Only the command is logged: the rest may be a password or message text.
+                log.debug("Received {} from {}", command, remoteAddress);
+
+                long retryAfter = RateLimiter.getShared().acquire(
+                        currentUser == null ? null : currentUser.getUsername(), remoteAddress, command);
+                if (retryAfter > 0) {
+                    rateLimited.increment();
+                    sendMessage("RATE_LIMITED," + retryAfter);
+                    continue;
+                }
 
-                switch (command) {
-                    case "LOGIN":
-                        handleLogin(requestParts);
-                        break;
-                    case "CREATE_ACCOUNT":
-                        handleCreateAccount(requestParts);
-                        break;
-                    case "SEND_MESSAGE":
-                        handleSendMessage(requestParts);
-                        break;
-                    case "ADD_FRIEND":
-                        handleAddFriend(requestParts);
-                        break;
-                    case "APPROVE_FRIEND_REQUEST":
-                        handleApproveFriendRequest(requestParts);
-                        break;
-                    case "REJECT_FRIEND_REQUEST":
-                        handleRejectFriendRequest(requestParts);
-                        break;
-                    case "REMOVE_FRIEND":
-                        handleRemoveFriend(requestParts);
-                        break;
-                    case "BLOCK_USER":
-                        handleBlockUser(requestParts);
-                        break;
-                    case "UNBLOCK_USER":
-                        handleUnblockUser(requestParts);
-                        break;
-                    case "SEARCH_USER":
-                        handleUserSearch(requestParts);
-                        break;
-                    case "VIEW_USERS":
-                        handleViewUsers(requestParts);
-                        break;
-                    case "VIEW_FRIENDS":
-                        handleViewFriends(requestParts);
-                        break;
-                    case "VIEW_BLOCKED":
-                        handleViewBlocked(requestParts);
-                        break;
-                    case "GET_USER_PROFILE":
-                        handleGetUserProfile(requestParts);
-                        break;
-                    case "GET_MESSAGES":
-                        handleGetMessages(requestParts);
-                        break;
-                    case "LOGOUT":
-                        handleLogout();
-                        break;
-                    case "EXIT":
-                        handleExit();
-                        return;
-                    default:
-                        sendMessage("ERROR,Unknown command");
-                        break;
+                ChatEvents.Command event = new ChatEvents.Command();
+                event.begin();
+                long start = System.nanoTime();
+                // With mailboxes enabled, every command of a logged-in user runs on that
+                // user's mailbox, so a user's commands from all connections are applied in order.
+                boolean keepOpen = currentUser != null && UserMailbox.isEnabled()
+                        ? UserMailbox.of(currentUser).call(() -> {
+                            event.queueWait = System.nanoTime() - start;
+                            return traced(command, requestParts, event.queueWait);
+                        })
+                        : traced(command, requestParts, 0);
+                commandLatency.getOrDefault(command, unknownCommandLatency)
+                        .record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                event.end();
+                if (event.shouldCommit()) {
+                    event.command = command;
+                    event.user = currentUser == null ? null : currentUser.getUsername();
+                    event.remoteAddress = remoteAddress;
+                    event.payloadSize = clientRequest.length();
+                    event.commit();
+                }
+                if (!keepOpen) {
+                    return;
                 }
             }
         } catch (IOException e) {
-            System.out.println("Connection with client lost: " + e.getMessage());
+            log.debug("Connection with {} lost: {}", remoteAddress, e.getMessage());
         } finally {
+            connectionsClosed.increment();
+            stats.unregister();
+            TimingWheel.Timeout check = idleCheck;
+            if (check != null) {
+                check.cancel();
+            }
             if (currentUser != null) {
                 server.removeUserClient(currentUser.getUsername());
                 notifyFriendsStatusChange(currentUser.getUsername(), false);
@@ -117,13 +161,223 @@ public class ClientHandler implements Runnable, ClientInterface {
         }
     }
 
+    /**
+     * Runs a single client command and reports it to the slow-command log.
+     *
+     * @param command      The upper-cased command name.
+     * @param requestParts The split request.
+     * @param queueNanos   How long the command waited in the user's mailbox.
+     * @return false if the client asked to close the connection.
+     */
+    private boolean traced(String command, String[] requestParts, long queueNanos) {
+        SlowCommandLog slowLog = SlowCommandLog.getShared();
+        SlowCommandLog.Trace trace = slowLog.begin(this, command);
+        try {
+            return dispatch(command, requestParts);
+        } finally {
+            slowLog.end(trace, currentUser == null ? null : currentUser.getUsername(), requestParts, queueNanos);
+        }
+    }
+
+    /**
+     * Runs a single client command.
+     *
+     * @param command      The upper-cased command name.
+     * @param requestParts The split request.
+     * @return false if the client asked to close the connection.
+     */
+    private boolean dispatch(String command, String[] requestParts) {
+        switch (command) {
+            case "LOGIN":
+                handleLogin(requestParts);
+                break;
+            case "CREATE_ACCOUNT":
+                handleCreateAccount(requestParts);
+                break;
+            case "SEND_MESSAGE":
+                handleSendMessage(requestParts);
+                break;
+            case "ADD_FRIEND":
+                handleAddFriend(requestParts);
+                break;
+            case "APPROVE_FRIEND_REQUEST":
+                handleApproveFriendRequest(requestParts);
+                break;
+            case "REJECT_FRIEND_REQUEST":
+                handleRejectFriendRequest(requestParts);
+                break;
+            case "REMOVE_FRIEND":
+                handleRemoveFriend(requestParts);
+                break;
+            case "BLOCK_USER":
+                handleBlockUser(requestParts);
+                break;
+            case "UNBLOCK_USER":
+                handleUnblockUser(requestParts);
+                break;
+            case "SEARCH_USER":
+                handleUserSearch(requestParts);
+                break;
+            case "VIEW_USERS":
+                handleViewUsers(requestParts);
+                break;
+            case "VIEW_FRIENDS":
+                handleViewFriends(requestParts);
+                break;
+            case "VIEW_BLOCKED":
+                handleViewBlocked(requestParts);
+                break;
+            case "GET_USER_PROFILE":
+                handleGetUserProfile(requestParts);
+                break;
+            case "GET_MESSAGES":
+                handleGetMessages(requestParts);
+                break;
+            case "DELETE_MESSAGE":
+                handleDeleteMessage(requestParts);
+                break;
+            case "EDIT_MESSAGE":
+                handleEditMessage(requestParts);
+                break;
+            case "SEARCH_MESSAGES":
+                handleSearchMessages(requestParts);
+                break;
+            case "PING":
+                sendMessage("PONG");
+                break;
+            case "ENABLE_ACKS":
+                acksEnabled = true;
+                sendMessage("ACKS_ENABLED");
+                break;
+            case "ACK":
+                handleAck(requestParts);
+                break;
+            case "PONG":
+                break; // Reading it already counted as activity.
+            case "STATS":
+                handleStats();
+                break;
+            case "RECORDING":
+                handleRecording(requestParts);
+                break;
+            case "CONNECTIONS":
+                handleConnections(requestParts);
+                break;
+            case "LOGOUT":
+                handleLogout();
+                break;
+            case "EXIT":
+                handleExit();
+                return false;
+            default:
+                sendMessage("ERROR,Unknown command");
+                break;
+        }
+        return true;
+    }
+
+    private void scheduleIdleCheck(long delayMillis) {
+        idleCheck = TimingWheel.getShared().schedule(this::checkIdle, delayMillis);
+    }
+
+    /**
+     * Runs on the timing wheel thread. A client that has been quiet for a heartbeat
+     * interval is sent PING; one that stays quiet until the idle timeout, such as a
+     * peer that vanished without closing its socket, has its socket closed. That wakes
+     * up run(), which then logs the user out just as for any dropped connection.
+     */
+    private void checkIdle() {
+        long idle = System.currentTimeMillis() - lastActivityMillis;
+        if (idle >= IDLE_TIMEOUT_MS) {
+            log.info("Closing idle connection from {}", remoteAddress);
+            disconnect();
+            return;
+        }
+        if (idle >= PING_INTERVAL_MS) {
+            // Writing can block on a dead peer, so keep it off the wheel thread.
+            ForkJoinPool.commonPool().execute(() -> sendMessage("PING"));
+            scheduleIdleCheck(Math.min(PING_INTERVAL_MS, IDLE_TIMEOUT_MS - idle));
+        } else {
+            scheduleIdleCheck(PING_INTERVAL_MS - idle);
+        }
+    }
+
+    /**
+     * Closes the connection from another thread. Only the socket is closed, since
+     * flushing the writer could block on a dead peer; run() then logs the user out
+     * just as for any dropped connection.
+     */
+    public void disconnect() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tells whether this client acknowledges pushes (see DeliveryTracker).
+     *
+     * @return true once the client has sent ENABLE_ACKS.
+     */
+    public boolean isAcksEnabled() {
+        return acksEnabled;
+    }
+
     /**
      * Sends a message to the connected client.
      *
      * @param message The message to send.
      */
     public void sendMessage(String message) {
-        out.println(message);
+        long queuedAt = stats.enqueued();
+        writeLock.lock();
+        try {
+            stats.writing(queuedAt);
+            out.println(message);
+        } finally {
+            stats.written();
+            writeLock.unlock();
+        }
+        SlowCommandLog.recordWrite(this, System.nanoTime() - queuedAt, message.length());
+    }
+
+    /**
+     * Queues a push for flushQueued(). Pushes are written in the order they were
+     * queued, so queueing under a lock fixes their order without writing under it.
+     *
+     * @param message The push to send.
+     */
+    public void queueMessage(String message) {
+        queuedPushes.add(message);
+    }
+
+    /**
+     * Writes the queued pushes in order. If another thread is already writing them, it
+     * picks up the pushes queued by this one too, and this returns at once.
+     */
+    public void flushQueued() {
+        while (!queuedPushes.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                String message;
+                while ((message = queuedPushes.poll()) != null) {
+                    sendMessage(message);
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the I/O accounting of this connection.
+     *
+     * @return The connection's stats.
+     */
+    public ConnectionStats getConnectionStats() {
+        return stats;
     }
 
     /**
@@ -135,7 +389,7 @@ public class ClientHandler implements Runnable, ClientInterface {
             if (in != null) in.close();
             if (socket != null && !socket.isClosed()) socket.close();
         } catch (IOException e) {
-            System.err.println("Error closing connections: " + e.getMessage());
+            log.warn("Error closing connections: {}", e.getMessage());
         }
     }
 
@@ -146,17 +400,32 @@ public class ClientHandler implements Runnable, ClientInterface {
      * @return The User object if found; otherwise, null.
      */
     private User getUserByUsername(String username) {
-        for (User user : User.getAllUsers()) {
-            if (user.getUsername() != null && user.getUsername().equals(username)) {
-                return user;
+        return User.getUserByUsername(username);
+    }
+
+    /**
+     * Tells whether text holds a control character other than tab. Usernames and message
+     * text end up inside pushes, and an offline inbox joins pushes with
+     * OfflineInbox.EVENT_SEPARATOR, so text carrying one could forge events.
+     *
+     * @param text The text to check.
+     * @return true if the text must be rejected.
+     */
+    private static boolean hasControlCharacters(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isISOControl(c) && c != '\t') {
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
     /**
      * Handles the LOGIN command.
      * Usage: LOGIN,username,password
+     * After LOGIN_SUCCESS the user list is pushed as USER_LIST_FULL,version,entries,
+     * possibly followed by USER_LIST_DELTA, like a VIEW_USERS reply.
      */
     private void handleLogin(String[] requestParts) {
         if (currentUser != null) {
@@ -173,32 +442,170 @@ public class ClientHandler implements Runnable, ClientInterface {
         String password = requestParts[2];
 
         User user = getUserByUsername(username);
-        if (user != null && user.getPassword().equals(password)) {
+        Boolean valid = user == null ? Boolean.FALSE : checkCredentials(user, password);
+        if (valid == null) {
+            return; // The client was already told to retry.
+        }
+        if (valid) {
+            // Lookups ignore case; every server, directory and inbox key uses the stored spelling.
+            username = user.getUsername();
             if (server.isUserLoggedIn(username)) {
                 sendMessage("ERROR,User already logged in");
                 return;
             }
 
             currentUser = user;
-            server.addUserClient(username, this);
+            stats.setUser(username);
+            // Reply first: joining the server also flushes the offline inbox to this client.
             sendMessage("LOGIN_SUCCESS");
+            server.addUserClient(username, this);
             notifyFriendsStatusChange(username, true);
-            sendUserList();
+            sendVersionedUserList();
         } else {
             sendMessage("LOGIN_FAILURE,Invalid credentials");
         }
     }
 
+    /**
+     * Checks a password on the AuthExecutor, so hashing never runs on connection
+     * threads. If the executor is saturated the client is told at once to retry
+     * later with LOGIN_BUSY,retry_after_ms.
+     *
+     * @return Whether the password matches, or null if the client was told to retry.
+     */
+    private Boolean checkCredentials(User user, String password) {
+        AuthExecutor auth = AuthExecutor.getShared();
+        try {
+            return auth.submit(() -> user.login(user.getUsername(), password))
+                    .get(AUTH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | TimeoutException e) {
+            sendMessage("LOGIN_BUSY," + auth.getRetryAfterMillis());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Credential check failed for {}", user.getUsername(), e.getCause());
+        }
+        return false;
+    }
+
+    /**
+     * Handles the ACK command. Acks are cumulative and get no reply.
+     * Usage: ACK,seq
+     */
+    private void handleAck(String[] requestParts) {
+        if (currentUser == null || requestParts.length < 2) {
+            return;
+        }
+        try {
+            server.getDeliveryTracker().ack(currentUser.getUsername(), Long.parseLong(requestParts[1].trim()));
+        } catch (NumberFormatException e) {
+            sendMessage("ERROR,Invalid ACK command. Usage: ACK,seq");
+        }
+    }
+
+    /**
+     * Tells whether the logged-in user may run admin commands. Admins are the
+     * usernames listed in -Dchat.admins, separated by commas.
+     */
+    private boolean isAdmin() {
+        return currentUser != null && admins.contains(currentUser.getUsername());
+    }
+
+    /**
+     * Handles the STATS command. Admin only.
+     * Usage: STATS
+     * Replies STATS,name=value;... with counters, gauges and, for histograms,
+     * name{count=..,mean=..,p50=..,p99=..,p999=..,max=..}. Latencies are in microseconds.
+     */
+    private void handleStats() {
+        if (!isAdmin()) {
+            sendMessage("ERROR,STATS is only available to admins");
+            return;
+        }
+        sendMessage("STATS," + Metrics.getShared().report());
+    }
+
+    /**
+     * Handles the CONNECTIONS command. Admin only.
+     * Usage: CONNECTIONS[,&lt;column&gt;[,&lt;limit&gt;]], where column is one of ConnectionStats.COLUMNS
+     * (default bytes_out) and limit defaults to 20. The reply lists the open connections,
+     * largest first, as CONNECTIONS,&lt;column&gt;,&lt;row&gt;;&lt;row&gt;...
+     */
+    private void handleConnections(String[] requestParts) {
+        if (!isAdmin()) {
+            sendMessage("ERROR,CONNECTIONS is only available to admins");
+            return;
+        }
+        String column = requestParts.length < 2 ? "bytes_out" : requestParts[1].trim().toLowerCase();
+        int limit = DEFAULT_CONNECTIONS_LIMIT;
+        if (requestParts.length > 2) {
+            try {
+                limit = Integer.parseInt(requestParts[2].trim());
+            } catch (NumberFormatException e) {
+                sendMessage("ERROR,Invalid limit");
+                return;
+            }
+        }
+        List<ConnectionStats> top = ConnectionStats.top(column, limit);
+        if (top == null) {
+            sendMessage("ERROR,Unknown column; use one of " + String.join(" ", ConnectionStats.COLUMNS));
+            return;
+        }
+        StringBuilder reply = new StringBuilder("CONNECTIONS,").append(column).append(',');
+        for (int i = 0; i < top.size(); i++) {
+            reply.append(i > 0 ? ";" : "").append(top.get(i));
+        }
+        sendMessage(reply.toString());
+    }
+
+    /**
+     * Handles the RECORDING command. Admin only.
+     * Usage: RECORDING,START|DUMP|STOP|STATUS
+     * DUMP writes the recording so far to a .jfr file on the server and replies with its path.
+     */
+    private void handleRecording(String[] requestParts) {
+        if (!isAdmin()) {
+            sendMessage("ERROR,RECORDING is only available to admins");
+            return;
+        }
+        String action = requestParts.length < 2 ? "STATUS" : requestParts[1].trim().toUpperCase();
+        Recorder recorder = Recorder.getShared();
+        try {
+            switch (action) {
+                case "START":
+                    sendMessage(recorder.start() ? "RECORDING_STARTED" : "ERROR,A recording is already running");
+                    break;
+                case "DUMP":
+                    sendMessage("RECORDING_DUMPED," + recorder.dump().toAbsolutePath());
+                    break;
+                case "STOP":
+                    sendMessage(recorder.stop() ? "RECORDING_STOPPED" : "ERROR,No recording is running");
+                    break;
+                case "STATUS":
+                    sendMessage("RECORDING," + (recorder.isRecording() ? "ON" : "OFF"));
+                    break;
+                default:
+                    sendMessage("ERROR,Usage: RECORDING,START|DUMP|STOP|STATUS");
+                    break;
+            }
+        } catch (IOException e) {
+            sendMessage("ERROR," + e.getMessage());
+        }
+    }
+
     /**
      * Handles the CREATE_ACCOUNT command.
      * Usage: CREATE_ACCOUNT,username,password,email,birthday,bio,privacy
      */
-    private void handleCreateAccount(String[] requestParts) {
+    private void handleCreateAccount(String[] parts) {
         if (currentUser != null) {
             sendMessage("ERROR,Already logged in. Please logout to create a new account.");
             return;
         }
 
+        // run() splits off only two fields so message text keeps its commas; this command needs six.
+        String[] requestParts = String.join(",", parts).split(",", 7);
         if (requestParts.length != 7) {
             sendMessage("ERROR,Invalid CREATE_ACCOUNT command. Usage: CREATE_ACCOUNT,username,password,email,birthday,bio,privacy");
             return;
@@ -211,6 +618,11 @@ public class ClientHandler implements Runnable, ClientInterface {
         String bio = requestParts[5];
         String privacy = requestParts[6];
 
+        if (hasControlCharacters(username)) {
+            sendMessage("ERROR,Username cannot contain control characters");
+            return;
+        }
+
         if (!User.checkUserNameAvailability(username)) {
             sendMessage("ERROR,Username is already taken");
             return;
@@ -219,16 +631,16 @@ public class ClientHandler implements Runnable, ClientInterface {
         String profile = "Email: " + email + ", Birthday: " + birthday + ", Bio: " + bio + ", Privacy: " + privacy;
         String picture = "default_pic.png";
 
-        User.addUser(username, username, password, profile, picture);
-        User.saveUsersToFile();
-
-        User newUser = getUserByUsername(username);
+        // addUser claims the username atomically, so a client that lost a race for it gets null here.
+        User newUser = User.addUser(username, username, password, profile, picture);
         if (newUser != null) {
             currentUser = newUser;
-            server.addUserClient(username, this);
+            username = newUser.getUsername();
+            stats.setUser(username);
             sendMessage("CREATE_ACCOUNT_SUCCESS");
+            server.addUserClient(username, this);
             notifyFriendsStatusChange(username, true);
-            sendUserList();
+            sendVersionedUserList();
         } else {
             sendMessage("ERROR,Failed to create account");
         }
@@ -251,6 +663,10 @@ public class ClientHandler implements Runnable, ClientInterface {
 
         String recipientUsername = requestParts[1];
         String message = requestParts[2];
+        if (hasControlCharacters(message)) {
+            sendMessage("ERROR,Message cannot contain control characters");
+            return;
+        }
 
         User recipient = getUserByUsername(recipientUsername);
         if (recipient == null) {
@@ -263,11 +679,11 @@ public class ClientHandler implements Runnable, ClientInterface {
             return;
         }
 
-        boolean messageSent = currentUser.getMessagingDB().addMessage(message, recipient);
-        if (messageSent) {
+        Message sent = currentUser.getMessagingDB().postMessage(message, recipient);
+        if (sent != null) {
             User.saveUsersToFile();
-            sendMessage("SEND_MESSAGE_SUCCESS");
-            server.sendToUser(recipientUsername, "MESSAGE," + currentUser.getUsername() + "," + message);
+            sendMessage("SEND_MESSAGE_SUCCESS," + sent.getId());
+            server.sendToUser(recipient.getUsername(), "MESSAGE," + currentUser.getUsername() + "," + sent.getId() + "," + message);
         } else {
             sendMessage("ERROR,Failed to send message");
         }
@@ -315,9 +731,7 @@ public class ClientHandler implements Runnable, ClientInterface {
         User.saveUsersToFile();
         sendMessage("ADD_FRIEND_SUCCESS," + friendUsername);
 
-        if (server.isUserLoggedIn(friendUsername)) {
-            server.sendToUser(friendUsername, "FRIEND_REQUEST," + currentUser.getUsername());
-        }
+        server.sendToUser(friend.getUsername(), "FRIEND_REQUEST," + currentUser.getUsername());
     }
 
     /**
@@ -349,13 +763,10 @@ public class ClientHandler implements Runnable, ClientInterface {
         }
 
         currentUser.getFriendsDB().approveFriendRequest(requester);
-        requester.getFriendsDB().approveFriendRequest(currentUser);
         User.saveUsersToFile();
         sendMessage("APPROVE_FRIEND_REQUEST_SUCCESS," + requesterUsername);
 
-        if (server.isUserLoggedIn(requesterUsername)) {
-            server.sendToUser(requesterUsername, "FRIEND_REQUEST_APPROVED," + currentUser.getUsername());
-        }
+        server.sendToUser(requester.getUsername(), "FRIEND_REQUEST_APPROVED," + currentUser.getUsername());
     }
 
     /**
@@ -390,9 +801,7 @@ public class ClientHandler implements Runnable, ClientInterface {
         User.saveUsersToFile();
         sendMessage("REJECT_FRIEND_REQUEST_SUCCESS," + requesterUsername);
 
-        if (server.isUserLoggedIn(requesterUsername)) {
-            server.sendToUser(requesterUsername, "FRIEND_REQUEST_REJECTED," + currentUser.getUsername());
-        }
+        server.sendToUser(requester.getUsername(), "FRIEND_REQUEST_REJECTED," + currentUser.getUsername());
     }
 
     /**
@@ -424,13 +833,10 @@ public class ClientHandler implements Runnable, ClientInterface {
         }
 
         currentUser.getFriendsDB().removeFriend(friend);
-        friend.getFriendsDB().removeFriend(currentUser);
         User.saveUsersToFile();
         sendMessage("REMOVE_FRIEND_SUCCESS," + friendUsername);
 
-        if (server.isUserLoggedIn(friendUsername)) {
-            server.sendToUser(friendUsername, "FRIEND_REMOVED," + currentUser.getUsername());
-        }
+        server.sendToUser(friend.getUsername(), "FRIEND_REMOVED," + currentUser.getUsername());
     }
 
     /**
@@ -467,16 +873,10 @@ public class ClientHandler implements Runnable, ClientInterface {
         }
 
         currentUser.getFriendsDB().blockUser(blockedUser);
-        if (currentUser.getFriendsDB().isFriend(blockedUser)) {
-            currentUser.getFriendsDB().removeFriend(blockedUser);
-            blockedUser.getFriendsDB().removeFriend(currentUser);
-        }
         User.saveUsersToFile();
         sendMessage("BLOCK_USER_SUCCESS," + blockedUsername);
 
-        if (server.isUserLoggedIn(blockedUsername)) {
-            server.sendToUser(blockedUsername, "USER_BLOCKED," + currentUser.getUsername());
-        }
+        server.sendToUser(blockedUser.getUsername(), "USER_BLOCKED," + currentUser.getUsername());
     }
 
     /**
@@ -530,7 +930,7 @@ public class ClientHandler implements Runnable, ClientInterface {
         String query = requestParts[1].toLowerCase();
         List<String> matchingUsers = new ArrayList<>();
 
-        for (User user : User.getAllUsers()) {
+        for (User user : UserRegistry.getShared().getUsers()) {
             if (user.getUsername() != null &&
                     (user.getUsername().toLowerCase().contains(query) ||
                             user.getName().toLowerCase().contains(query))) {
@@ -549,25 +949,42 @@ public class ClientHandler implements Runnable, ClientInterface {
 
     /**
      * Handles the VIEW_USERS command.
-     * Usage: VIEW_USERS
+     * Usage: VIEW_USERS[,known_version]
+     * Without a version the reply is the full USER_LIST. With the version from an earlier
+     * reply it is USER_LIST_NOT_MODIFIED,version, USER_LIST_DELTA,from,to,changes or,
+     * if that version is too old, USER_LIST_FULL,version,entries, possibly followed by
+     * a USER_LIST_DELTA up to the current version.
      */
     private void handleViewUsers(String[] requestParts) {
         if (currentUser == null) {
             sendMessage("ERROR,Please log in first to view users");
             return;
         }
+        if (requestParts.length < 2) {
+            sendUserList();
+            return;
+        }
 
-        List<String> allUsers = new ArrayList<>();
-        for (User user : User.getAllUsers()) {
-            String status = server.isUserLoggedIn(user.getUsername()) ? "online" : "offline";
-            allUsers.add(status + ":" + user.getUsername());
+        long knownVersion;
+        try {
+            knownVersion = Long.parseLong(requestParts[1].trim());
+        } catch (NumberFormatException e) {
+            sendMessage("ERROR,Invalid VIEW_USERS command. Usage: VIEW_USERS[,known_version]");
+            return;
         }
 
-        if (allUsers.isEmpty()) {
-            sendMessage("USER_LIST,No users found.");
-        } else {
-            sendMessage("USER_LIST," + String.join(";", allUsers));
+        UserDirectory directory = UserDirectory.getShared();
+        long version = directory.getVersion();
+        if (knownVersion == version) {
+            sendMessage("USER_LIST_NOT_MODIFIED," + version);
+            return;
+        }
+        UserDirectory.Snapshot changes = directory.getChangesSince(knownVersion);
+        if (changes != null) {
+            sendMessage("USER_LIST_DELTA," + knownVersion + "," + changes.getVersion() + "," + changes.getEncoded());
+            return;
         }
+        sendVersionedUserList();
     }
 
     /**
@@ -646,7 +1063,9 @@ public class ClientHandler implements Runnable, ClientInterface {
 
     /**
      * Handles the GET_MESSAGES command.
-     * Usage: GET_MESSAGES,friend_username
+     * Usage: GET_MESSAGES,friend_username[,before_cursor,limit]
+     * Replies with MESSAGES_LIST,next_cursor,messages where next_cursor is passed back as
+     * before_cursor to load older messages, and 0 means there are no older messages.
      */
     private void handleGetMessages(String[] requestParts) {
         if (currentUser == null) {
@@ -654,11 +1073,32 @@ public class ClientHandler implements Runnable, ClientInterface {
             return;
         }
 
-        if (requestParts.length != 2) {
-            sendMessage("ERROR,Invalid GET_MESSAGES command. Usage: GET_MESSAGES,friend_username");
+        if (requestParts.length < 2) {
+            sendMessage("ERROR,Invalid GET_MESSAGES command. Usage: GET_MESSAGES,friend_username[,before_cursor,limit]");
             return;
         }
 
+        int beforeCursor = -1;
+        int limit = DEFAULT_PAGE_SIZE;
+        if (requestParts.length == 3) {
+            String[] pageParts = requestParts[2].split(",");
+            try {
+                if (!pageParts[0].trim().isEmpty()) {
+                    beforeCursor = Integer.parseInt(pageParts[0].trim());
+                }
+                if (pageParts.length > 1) {
+                    limit = Integer.parseInt(pageParts[1].trim());
+                }
+            } catch (NumberFormatException e) {
+                sendMessage("ERROR,Invalid GET_MESSAGES command. Usage: GET_MESSAGES,friend_username[,before_cursor,limit]");
+                return;
+            }
+            if (limit <= 0) {
+                limit = DEFAULT_PAGE_SIZE;
+            }
+            limit = Math.min(limit, MAX_PAGE_SIZE);
+        }
+
         String friendUsername = requestParts[1];
         User friend = getUserByUsername(friendUsername);
 
@@ -672,16 +1112,141 @@ public class ClientHandler implements Runnable, ClientInterface {
             return;
         }
 
-        List<String> messages = currentUser.getMessagingDB().getMessages(friend);
-        if (messages.isEmpty()) {
-            sendMessage("MESSAGES_LIST,No messages with " + friendUsername);
+        Conversation.Page page = currentUser.getMessagingDB().getMessagePage(friend, beforeCursor, limit);
+        StringBuilder sb = new StringBuilder("MESSAGES_LIST,").append(page.getNextCursor()).append(',');
+        int headerLength = sb.length();
+        for (Message msg : page.getMessages()) {
+            if (!msg.isDeleted() && msg.getContent() != null) {
+                msg.appendTo(sb).append('|');
+            }
+        }
+        if (sb.length() == headerLength) {
+            sb.append("No messages with ").append(friendUsername);
         } else {
-            StringBuilder sb = new StringBuilder();
-            for (String msg : messages) {
-                sb.append(msg).append("|");
+            sb.setLength(sb.length() - 1);
+        }
+        sendMessage(sb.toString());
+        if (beforeCursor < 0) {
+            currentUser.getMessagingDB().markRead(friend);
+        }
+    }
+
+    /**
+     * Handles the DELETE_MESSAGE command.
+     * Usage: DELETE_MESSAGE,message_id
+     */
+    private void handleDeleteMessage(String[] requestParts) {
+        if (currentUser == null) {
+            sendMessage("ERROR,Please log in first to delete messages");
+            return;
+        }
+
+        if (requestParts.length != 2) {
+            sendMessage("ERROR,Invalid DELETE_MESSAGE command. Usage: DELETE_MESSAGE,message_id");
+            return;
+        }
+
+        long messageId;
+        try {
+            messageId = Long.parseLong(requestParts[1].trim());
+        } catch (NumberFormatException e) {
+            sendMessage("ERROR,Invalid message id");
+            return;
+        }
+
+        Message msg = currentUser.getMessagingDB().findMessage(messageId);
+        if (msg == null || msg.getSenderId() != currentUser.getId()) {
+            sendMessage("ERROR,Message not found");
+            return;
+        }
+
+        if (!currentUser.getMessagingDB().deleteMessage(messageId)) {
+            sendMessage("ERROR,Failed to delete message");
+            return;
+        }
+        sendMessage("DELETE_MESSAGE_SUCCESS," + messageId);
+        server.sendToUser(msg.getRecipient().getUsername(), "MESSAGE_DELETED," + currentUser.getUsername() + "," + messageId);
+    }
+
+    /**
+     * Handles the EDIT_MESSAGE command.
+     * Usage: EDIT_MESSAGE,message_id,new_text
+     */
+    private void handleEditMessage(String[] requestParts) {
+        if (currentUser == null) {
+            sendMessage("ERROR,Please log in first to edit messages");
+            return;
+        }
+
+        if (requestParts.length != 3 || requestParts[2].isEmpty()) {
+            sendMessage("ERROR,Invalid EDIT_MESSAGE command. Usage: EDIT_MESSAGE,message_id,new_text");
+            return;
+        }
+
+        long messageId;
+        try {
+            messageId = Long.parseLong(requestParts[1].trim());
+        } catch (NumberFormatException e) {
+            sendMessage("ERROR,Invalid message id");
+            return;
+        }
+        String text = requestParts[2];
+        if (hasControlCharacters(text)) {
+            sendMessage("ERROR,Message cannot contain control characters");
+            return;
+        }
+
+        Message msg = currentUser.getMessagingDB().findMessage(messageId);
+        if (msg == null || msg.getSenderId() != currentUser.getId()) {
+            sendMessage("ERROR,Message not found");
+            return;
+        }
+
+        if (!currentUser.getMessagingDB().editMessage(messageId, text)) {
+            sendMessage("ERROR,Failed to edit message");
+            return;
+        }
+        sendMessage("EDIT_MESSAGE_SUCCESS," + messageId);
+        server.sendToUser(msg.getRecipient().getUsername(),
+                "MESSAGE_EDITED," + currentUser.getUsername() + "," + messageId + "," + text);
+    }
+
+    /**
+     * Handles the SEARCH_MESSAGES command.
+     * Usage: SEARCH_MESSAGES,query[,friend_username]
+     */
+    private void handleSearchMessages(String[] requestParts) {
+        if (currentUser == null) {
+            sendMessage("ERROR,Please log in first to search messages");
+            return;
+        }
+
+        if (requestParts.length < 2 || requestParts[1].trim().isEmpty()) {
+            sendMessage("ERROR,Invalid SEARCH_MESSAGES command. Usage: SEARCH_MESSAGES,query[,friend_username]");
+            return;
+        }
+
+        User friend = null;
+        if (requestParts.length == 3) {
+            String friendUsername = requestParts[2].trim();
+            friend = getUserByUsername(friendUsername);
+            if (friend == null) {
+                sendMessage("ERROR,Friend not found");
+                return;
             }
-            if (sb.length() > 0) sb.setLength(sb.length() - 1);
-            sendMessage("MESSAGES_LIST," + sb.toString());
+        }
+
+        List<Message> results = currentUser.getMessagingDB()
+                .searchMessages(requestParts[1], friend, MessageSearchIndex.DEFAULT_RESULT_LIMIT);
+        if (results.isEmpty()) {
+            sendMessage("SEARCH_MESSAGES_RESULTS,No messages found matching the query.");
+        } else {
+            StringBuilder sb = new StringBuilder("SEARCH_MESSAGES_RESULTS,");
+            for (Message msg : results) {
+                msg.appendTo(sb).append('|');
+            }
+            sb.setLength(sb.length() - 1);
+            sendMessage(sb.toString());
         }
     }
 
@@ -700,6 +1265,7 @@ public class ClientHandler implements Runnable, ClientInterface {
         server.removeUserClient(currentUser.getUsername());
 
         currentUser = null;
+        stats.setUser(null);
         sendMessage("LOGOUT_SUCCESS");
     }
 
@@ -723,27 +1289,40 @@ public class ClientHandler implements Runnable, ClientInterface {
      */
     private void notifyFriendsStatusChange(String username, boolean isOnline) {
         String statusCommand = isOnline ? "USER_ONLINE," + username : "USER_OFFLINE," + username;
+        int notified = 0;
         for (User friend : currentUser.getFriendsDB().getFriends()) {
             if (server.isUserLoggedIn(friend.getUsername())) {
-                server.sendToUser(friend.getUsername(), statusCommand);
+                server.sendToUser(friend.getUsername(), statusCommand, false);
+                notified++;
             }
         }
+        presenceFanout.record(notified);
     }
 
     /**
      * Sends the current user list to the client.
      */
     private void sendUserList() {
-        List<String> allUsers = new ArrayList<>();
-        for (User user : User.getAllUsers()) {
-            String status = server.isUserLoggedIn(user.getUsername()) ? "online" : "offline";
-            allUsers.add(status + ":" + user.getUsername());
-        }
+        sendMessage(UserDirectory.getShared().getSnapshot().getUserList());
+    }
 
-        if (allUsers.isEmpty()) {
-            sendMessage("USER_LIST,No users found.");
-        } else {
-            sendMessage("USER_LIST," + String.join(";", allUsers));
+    /**
+     * Sends USER_LIST_FULL,version,entries from the cached list, followed by
+     * USER_LIST_DELTA,from,to,changes if the directory has moved on since it was built,
+     * so the client can send VIEW_USERS,to afterwards.
+     */
+    private void sendVersionedUserList() {
+        UserDirectory directory = UserDirectory.getShared();
+        UserDirectory.Snapshot base = directory.getRecentSnapshot();
+        UserDirectory.Snapshot changes = directory.getChangesSince(base.getVersion());
+        if (changes == null) {
+            // More than half the change log went by in between; the full list is current.
+            sendMessage(directory.getSnapshot().getVersionedUserList());
+            return;
+        }
+        sendMessage(base.getVersionedUserList());
+        if (changes.getVersion() != base.getVersion()) {
+            sendMessage("USER_LIST_DELTA," + base.getVersion() + "," + changes.getVersion() + "," + changes.getEncoded());
         }
     }
 }
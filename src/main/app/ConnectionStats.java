@@ -0,0 +1,355 @@
+package src.main.app;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * ConnectionStats
+ *
+ * I/O accounting for one client connection: bytes and frames (lines) in and out, the
+ * outbound queue and the command rate. Bytes are counted on the socket streams, so they
+ * are what actually crossed the wire. Writes are synchronous, so the outbound queue is
+ * the frames waiting for or inside a socket write; its depth and the age of the oldest
+ * of them show a client that is not reading.
+ *
+ * Rates are averaged over windows of at least ten seconds. Every open connection is
+ * registered, so the admin CONNECTIONS command can list them sorted by any column, and
+ * the totals are reported by STATS as net.* counters and connections.queued /
+ * connections.oldest_unsent_ms gauges.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class ConnectionStats implements ConnectionStatsInterface {
+    private final String remoteAddress;
+    private final long openedAt;
+    private final AtomicInteger queued;
+    private volatile String user;
+    // Each counter has one writer at a time: the reader thread for input, and the
+    // writer's lock for output. Volatile is enough for other threads to read them.
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile long framesIn;
+    private volatile long framesOut;
+    private volatile long writingSince;
+    private volatile long windowStart;
+    private long windowFrames;
+    private long windowBytes;
+    private volatile double commandRate;
+    private volatile double outRate;
+
+    /** The columns CONNECTIONS can sort by. */
+    public static final List<String> COLUMNS = List.of(
+            "bytes_in", "bytes_out", "frames_in", "frames_out", "queue", "oldest_ms",
+            "cmd_rate", "out_rate", "age_s");
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final Set<ConnectionStats> open = ConcurrentHashMap.newKeySet();
+    private static final LongAdder totalBytesIn = Metrics.getShared().counter("net.bytes_in");
+    private static final LongAdder totalBytesOut = Metrics.getShared().counter("net.bytes_out");
+    private static final LongAdder totalFramesIn = Metrics.getShared().counter("net.frames_in");
+    private static final LongAdder totalFramesOut = Metrics.getShared().counter("net.frames_out");
+
+    static {
+        Metrics.getShared().gauge("connections.queued", () -> {
+            long depth = 0;
+            for (ConnectionStats stats : open) {
+                depth += stats.getQueueDepth();
+            }
+            return depth;
+        });
+        Metrics.getShared().gauge("connections.oldest_unsent_ms", () -> {
+            long oldest = 0;
+            for (ConnectionStats stats : open) {
+                oldest = Math.max(oldest, stats.getOldestUnsentMillis());
+            }
+            return oldest;
+        });
+    }
+
+    public ConnectionStats(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+        this.openedAt = System.nanoTime();
+        this.queued = new AtomicInteger();
+        this.windowStart = openedAt;
+    }
+
+    /**
+     * Adds this connection to the ones listed by CONNECTIONS.
+     */
+    public void register() {
+        open.add(this);
+    }
+
+    /**
+     * Removes this connection once it is closed.
+     */
+    public void unregister() {
+        open.remove(this);
+    }
+
+    /**
+     * Returns every registered connection, sorted by a column, largest first.
+     *
+     * @param column One of COLUMNS.
+     * @param limit  The maximum number of connections returned.
+     * @return The connections, or null if the column is unknown.
+     */
+    public static List<ConnectionStats> top(String column, int limit) {
+        ToDoubleFunction<ConnectionStats> key = key(column);
+        if (key == null) {
+            return null;
+        }
+        List<ConnectionStats> all = new ArrayList<>(open);
+        long now = System.nanoTime();
+        for (ConnectionStats stats : all) {
+            stats.roll(now);
+        }
+        all.sort(Comparator.comparingDouble(key).reversed());
+        return all.subList(0, Math.min(Math.max(0, limit), all.size()));
+    }
+
+    private static ToDoubleFunction<ConnectionStats> key(String column) {
+        switch (column) {
+            case "bytes_in":
+                return ConnectionStats::getBytesIn;
+            case "bytes_out":
+                return ConnectionStats::getBytesOut;
+            case "frames_in":
+                return ConnectionStats::getFramesIn;
+            case "frames_out":
+                return ConnectionStats::getFramesOut;
+            case "queue":
+                return ConnectionStats::getQueueDepth;
+            case "oldest_ms":
+                return ConnectionStats::getOldestUnsentMillis;
+            case "cmd_rate":
+                return ConnectionStats::getCommandRate;
+            case "out_rate":
+                return ConnectionStats::getOutRate;
+            case "age_s":
+                return stats -> System.nanoTime() - stats.openedAt;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Wraps the socket's input so every byte read is counted.
+     *
+     * @param in The socket's input stream.
+     * @return The counting stream.
+     */
+    public InputStream countIn(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    addBytesIn(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    addBytesIn(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Wraps the socket's output so every byte written is counted.
+     *
+     * @param out The socket's output stream.
+     * @return The counting stream.
+     */
+    public OutputStream countOut(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                addBytesOut(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                addBytesOut(len);
+            }
+        };
+    }
+
+    private void addBytesIn(int n) {
+        bytesIn += n;
+        totalBytesIn.add(n);
+    }
+
+    private void addBytesOut(int n) {
+        bytesOut += n;
+        totalBytesOut.add(n);
+    }
+
+    /**
+     * Counts a frame (a command) read from the client.
+     */
+    @Override
+    public void frameIn() {
+        framesIn++;
+        totalFramesIn.increment();
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            roll(now);
+        }
+    }
+
+    /**
+     * Counts a frame waiting to be written.
+     *
+     * @return The time it was queued, to pass to writing().
+     */
+    @Override
+    public long enqueued() {
+        queued.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the start of the write of a queued frame. Writes are taken in order, so this
+     * is the oldest frame not yet sent.
+     *
+     * @param queuedAt The time returned by enqueued().
+     */
+    @Override
+    public void writing(long queuedAt) {
+        writingSince = queuedAt;
+    }
+
+    /**
+     * Marks a frame as written, or given up on because the write failed.
+     */
+    @Override
+    public void written() {
+        writingSince = 0;
+        framesOut++;
+        totalFramesOut.increment();
+        queued.decrementAndGet();
+    }
+
+    /**
+     * Ends the current rate window if it is old enough. Until the first window ends,
+     * the rates are those since the connection opened.
+     */
+    private synchronized void roll(long now) {
+        long elapsed = now - windowStart;
+        boolean full = elapsed >= WINDOW_NANOS;
+        if (elapsed <= 0 || !full && windowStart != openedAt) {
+            return;
+        }
+        long frames = framesIn;
+        long bytes = bytesOut;
+        commandRate = (frames - windowFrames) * 1e9 / elapsed;
+        outRate = (bytes - windowBytes) * 1e9 / elapsed;
+        if (full) {
+            windowStart = now;
+            windowFrames = frames;
+            windowBytes = bytes;
+        }
+    }
+
+    /**
+     * Records who is logged in on this connection.
+     *
+     * @param user The username, or null after logout.
+     */
+    @Override
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    @Override
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    @Override
+    public long getFramesOut() {
+        return framesOut;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Returns how long the oldest frame not yet sent has been waiting.
+     *
+     * @return The age in milliseconds, or 0 if nothing is being written.
+     */
+    @Override
+    public long getOldestUnsentMillis() {
+        long since = writingSince;
+        return since == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+
+    /**
+     * Returns the commands per second over the last window.
+     *
+     * @return The command rate.
+     */
+    @Override
+    public double getCommandRate() {
+        return commandRate;
+    }
+
+    /**
+     * Returns the bytes written per second over the last window.
+     *
+     * @return The output rate.
+     */
+    @Override
+    public double getOutRate() {
+        return outRate;
+    }
+
+    /**
+     * Formats this connection as one row of the CONNECTIONS reply.
+     *
+     * @return The row.
+     */
+    @Override
+    public String toString() {
+        return String.format("user=%s addr=%s age_s=%d bytes_in=%d bytes_out=%d frames_in=%d frames_out=%d"
+                        + " queue=%d oldest_ms=%d cmd_rate=%.1f out_rate=%.0f",
+                user == null ? "-" : user, remoteAddress,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - openedAt),
+                bytesIn, bytesOut, framesIn, framesOut, getQueueDepth(), getOldestUnsentMillis(),
+                commandRate, outRate);
+    }
+}
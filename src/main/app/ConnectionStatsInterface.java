@@ -0,0 +1,25 @@
+package src.main.app;
+
+/**
+ * Team Project -- ConnectionStatsInterface
+ *
+ * Interface for the ConnectionStats class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface ConnectionStatsInterface {
+    void frameIn();
+    long enqueued();
+    void writing(long queuedAt);
+    void written();
+    void setUser(String user);
+    long getBytesIn();
+    long getBytesOut();
+    long getFramesIn();
+    long getFramesOut();
+    int getQueueDepth();
+    long getOldestUnsentMillis();
+    double getCommandRate();
+    double getOutRate();
+}
@@ -0,0 +1,309 @@
+package src.main.app;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Conversation
+ *
+ * Holds the single message log shared by the two participants of a chat.
+ * There is exactly one Conversation per pair of users, keyed by the ordered pair
+ * of their IDs, so a message is stored once no matter which side reads it.
+ * Messages are never removed from the log: deletes leave a tombstone in place, so
+ * log positions never shift and can be used as paging cursors.
+ *
+ * Appends and reads go through a lock-free ConversationLog, so A to B and B to A
+ * sends on different handler threads never block each other or a reader.
+ *
+ * Every conversation has a number, which a message ID carries in its low NUMBER_BITS
+ * bits, so the conversation of a message is found in a directory indexed by number
+ * instead of a global per-message index. Inside the conversation, a lock-free primitive
+ * table maps message IDs to log positions, at 16 to 32 bytes per message, so lookups
+ * by ID take no lock either. A message found by ID is returned once it is published,
+ * so DELETE_MESSAGE or EDIT_MESSAGE right after SEND_MESSAGE always finds it.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class Conversation implements Serializable, ConversationInterface {
+    private final int lowUserId;
+    private final int highUserId;
+    private final int number;
+    private final ConversationLog log;
+    private final PositionIndex positions;
+
+    /** The low bits of a message ID that hold the number of its conversation. */
+    public static final int NUMBER_BITS = 28;
+    private static final long NUMBER_MASK = (1L << NUMBER_BITS) - 1;
+    private static final long serialVersionUID = 2L;
+    private static final ConcurrentHashMap<Long, Conversation> conversations = new ConcurrentHashMap<>();
+    // Conversations by number, in segments that double in size: segment k holds numbers 2^k to 2^(k+1) - 1.
+    private static final AtomicReferenceArray<AtomicReferenceArray<Conversation>> directory =
+            new AtomicReferenceArray<>(NUMBER_BITS);
+    // Number 0 is left for messages without both participants.
+    private static final AtomicInteger nextNumber = new AtomicInteger(1);
+
+    private Conversation(int lowUserId, int highUserId) {
+        this.lowUserId = lowUserId;
+        this.highUserId = highUserId;
+        this.number = nextNumber.getAndIncrement();
+        if (number > NUMBER_MASK) {
+            throw new IllegalStateException("Too many conversations.");
+        }
+        this.log = new ConversationLog();
+        this.positions = new PositionIndex();
+    }
+
+    /**
+     * Builds the lookup key for a pair of user IDs. The smaller ID always goes in the
+     * high half so that (a, b) and (b, a) map to the same conversation.
+     */
+    private static long keyOf(int a, int b) {
+        int low = Math.min(a, b);
+        int high = Math.max(a, b);
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    private static long keyOf(User a, User b) {
+        return keyOf(a.getId(), b.getId());
+    }
+
+    /**
+     * Returns the conversation between two users, creating it on first use.
+     *
+     * @param a One participant.
+     * @param b The other participant.
+     * @return The shared conversation.
+     */
+    public static Conversation between(User a, User b) {
+        int low = Math.min(a.getId(), b.getId());
+        int high = Math.max(a.getId(), b.getId());
+        return conversations.computeIfAbsent(keyOf(a, b), k -> {
+            Conversation conversation = new Conversation(low, high);
+            register(conversation);
+            return conversation;
+        });
+    }
+
+    /**
+     * Returns the conversation between two users without creating one.
+     *
+     * @param a One participant.
+     * @param b The other participant.
+     * @return The shared conversation, or null if they have never exchanged messages.
+     */
+    public static Conversation find(User a, User b) {
+        return conversations.get(keyOf(a, b));
+    }
+
+    /**
+     * Finds the conversation that holds a message.
+     *
+     * @param messageId The ID of the message.
+     * @return The conversation, or null if no message has that ID.
+     */
+    public static Conversation findByMessageId(long messageId) {
+        int number = (int) (messageId & NUMBER_MASK);
+        if (number == 0) {
+            return null;
+        }
+        int segment = 31 - Integer.numberOfLeadingZeros(number);
+        AtomicReferenceArray<Conversation> slots = directory.get(segment);
+        return slots == null ? null : slots.get(number - (1 << segment));
+    }
+
+    private static void register(Conversation conversation) {
+        int segment = 31 - Integer.numberOfLeadingZeros(conversation.number);
+        AtomicReferenceArray<Conversation> slots = directory.get(segment);
+        if (slots == null) {
+            directory.compareAndSet(segment, null, new AtomicReferenceArray<>(1 << segment));
+            slots = directory.get(segment);
+        }
+        slots.set(conversation.number - (1 << segment), conversation);
+    }
+
+    /**
+     * Returns the number that the IDs of this conversation's messages carry.
+     *
+     * @return The conversation number, from 1 up.
+     */
+    int getNumber() {
+        return number;
+    }
+
+    @Override
+    public boolean hasParticipant(User user) {
+        return user != null && (user.getId() == lowUserId || user.getId() == highUserId);
+    }
+
+    private boolean hasParticipant(int userId) {
+        return userId == lowUserId || userId == highUserId;
+    }
+
+    @Override
+    public void append(Message msg) {
+        int position = log.append(msg);
+        positions.put(msg.getId(), position);
+    }
+
+    @Override
+    public Message getMessage(long messageId) {
+        int position = positions.get(messageId);
+        if (position < 0) {
+            return null;
+        }
+        // The slot is filled before the ID is added, so at most an earlier append that
+        // is still in progress holds back its publication.
+        Message msg = log.await(position);
+        if (!hasParticipant(msg.getSenderId()) || !hasParticipant(msg.getRecipientId())) {
+            return null;
+        }
+        return msg;
+    }
+
+    @Override
+    public boolean delete(long messageId) {
+        Message msg = getMessage(messageId);
+        return msg != null && msg.markDeleted();
+    }
+
+    @Override
+    public boolean edit(long messageId, String text) {
+        Message msg = getMessage(messageId);
+        return msg != null && msg.getType() == Message.TYPE_TEXT && msg.edit(text);
+    }
+
+    @Override
+    public Page getPage(int beforeCursor, int limit) {
+        int size = log.size();
+        int end = beforeCursor < 0 || beforeCursor > size ? size : beforeCursor;
+        int start = Math.max(0, end - Math.max(0, limit));
+        return new Page(log.range(start, end), start);
+    }
+
+    @Override
+    public List<Message> getMessages() {
+        return log.range(0, log.size());
+    }
+
+    @Override
+    public int size() {
+        return log.size();
+    }
+
+    /**
+     * One page of a conversation, read backwards from a cursor.
+     * Cursors are log positions; since the log never shrinks they stay valid while
+     * new messages arrive. A next cursor of 0 means the start of the conversation was reached.
+     */
+    public static class Page {
+        private final List<Message> messages;
+        private final int nextCursor;
+
+        public Page(List<Message> messages, int nextCursor) {
+            this.messages = messages;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Message> getMessages() { return messages; }
+        public int getNextCursor() { return nextCursor; }
+    }
+
+    /**
+     * Lock-free map from message ID to log position. Entries are never removed or moved:
+     * they go into a chain of open-addressing tables, each twice the size of the one
+     * before, and a table takes no more entries once three quarters of its slots are
+     * claimed, so a probe always ends at an empty slot. A writer claims a slot by a CAS
+     * on its key and then stores the position; a reader that finds the key first waits
+     * for that one store.
+     */
+    private static class PositionIndex implements Serializable {
+        private static final long serialVersionUID = 2L;
+        private static final int INITIAL_CAPACITY = 4;
+
+        private final Table first = new Table(INITIAL_CAPACITY);
+        // The table new entries go to; only a hint, since it may briefly point at a full one.
+        private volatile Table current = first;
+
+        void put(long messageId, int position) {
+            Table table = current;
+            while (!table.tryPut(messageId, position)) {
+                Table next = table.next.get();
+                if (next == null) {
+                    table.next.compareAndSet(null, new Table(table.keys.length() * 2));
+                    next = table.next.get();
+                }
+                current = next;
+                table = next;
+            }
+        }
+
+        int get(long messageId) {
+            for (Table table = first; table != null; table = table.next.get()) {
+                int position = table.get(messageId);
+                if (position >= 0) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class Table implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLongArray keys;
+        // The position plus one, so 0 means the key is claimed but its position not stored yet.
+        private final AtomicIntegerArray values;
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicReference<Table> next = new AtomicReference<>();
+        private final int limit;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicIntegerArray(capacity);
+            this.limit = capacity / 4 * 3;
+        }
+
+        boolean tryPut(long messageId, int position) {
+            if (claimed.get() >= limit || claimed.getAndIncrement() >= limit) {
+                return false;
+            }
+            int mask = keys.length() - 1;
+            // Message IDs are never 0, so 0 marks an empty slot.
+            for (int slot = slotOf(messageId, mask); ; slot = (slot + 1) & mask) {
+                if (keys.compareAndSet(slot, 0, messageId)) {
+                    values.set(slot, position + 1);
+                    return true;
+                }
+            }
+        }
+
+        int get(long messageId) {
+            int mask = keys.length() - 1;
+            for (int slot = slotOf(messageId, mask); ; slot = (slot + 1) & mask) {
+                long key = keys.get(slot);
+                if (key == 0) {
+                    return -1;
+                }
+                if (key == messageId) {
+                    int value;
+                    while ((value = values.get(slot)) == 0) {
+                        Thread.onSpinWait();
+                    }
+                    return value - 1;
+                }
+            }
+        }
+
+        private static int slotOf(long messageId, int mask) {
+            return Long.hashCode(messageId * 0x9E3779B97F4A7C15L) & mask;
+        }
+    }
+}
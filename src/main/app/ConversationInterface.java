@@ -0,0 +1,22 @@
+package src.main.app;
+
+import java.util.List;
+
+/**
+ * Team Project -- ConversationInterface
+ *
+ * Interface for the Conversation class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface ConversationInterface {
+    boolean hasParticipant(User user);
+    void append(Message msg);
+    Message getMessage(long messageId);
+    boolean delete(long messageId);
+    boolean edit(long messageId, String text);
+    Conversation.Page getPage(int beforeCursor, int limit);
+    List<Message> getMessages();
+    int size();
+}
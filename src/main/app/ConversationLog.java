@@ -0,0 +1,186 @@
+package src.main.app;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ConversationLog
+ *
+ * Append-only message log that many threads can write and read without locks.
+ *
+ * Slots live in segments whose sizes double (16, 32, 64, ...), so the segment
+ * directory never has to grow and is never copied while writers are active.
+ * A writer reserves a slot by bumping the tail, stores its message, and then helps
+ * advance the published count over every filled slot. Readers only look below the
+ * published count, so a snapshot never contains holes from appends still in progress.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class ConversationLog implements Serializable, ConversationLogInterface {
+    private final AtomicReferenceArray<AtomicReferenceArray<Message>> segments;
+    private final AtomicInteger tail;
+    private final AtomicInteger published;
+
+    private static final long serialVersionUID = 1L;
+    private static final int FIRST_SEGMENT_SHIFT = 4;
+    private static final int SEGMENT_COUNT = 32 - FIRST_SEGMENT_SHIFT;
+
+    public ConversationLog() {
+        this.segments = new AtomicReferenceArray<>(SEGMENT_COUNT);
+        this.tail = new AtomicInteger();
+        this.published = new AtomicInteger();
+    }
+
+    /**
+     * Maps a position to the segment holding it. Segment k starts at
+     * 16 * (2^k - 1) and holds 16 * 2^k slots.
+     */
+    private static int segmentOf(int position) {
+        int shifted = position + (1 << FIRST_SEGMENT_SHIFT);
+        return 31 - Integer.numberOfLeadingZeros(shifted) - FIRST_SEGMENT_SHIFT;
+    }
+
+    private static int offsetOf(int position, int segment) {
+        return position + (1 << FIRST_SEGMENT_SHIFT) - (1 << (segment + FIRST_SEGMENT_SHIFT));
+    }
+
+    private AtomicReferenceArray<Message> segmentFor(int segment) {
+        AtomicReferenceArray<Message> slots = segments.get(segment);
+        if (slots == null) {
+            AtomicReferenceArray<Message> fresh = new AtomicReferenceArray<>(1 << (segment + FIRST_SEGMENT_SHIFT));
+            slots = segments.compareAndSet(segment, null, fresh) ? fresh : segments.get(segment);
+        }
+        return slots;
+    }
+
+    private Message slotAt(int position) {
+        int segment = segmentOf(position);
+        AtomicReferenceArray<Message> slots = segments.get(segment);
+        return slots == null ? null : slots.get(offsetOf(position, segment));
+    }
+
+    /**
+     * Appends a message without taking a lock.
+     *
+     * @param msg The message to append.
+     * @return The position the message was stored at.
+     */
+    @Override
+    public int append(Message msg) {
+        int position = reserve();
+        fill(position, msg);
+        return position;
+    }
+
+    /**
+     * Reserves the next position, the first half of append(). Readers see nothing at
+     * or after it until fill() is called for it.
+     *
+     * @return The reserved position.
+     */
+    @Override
+    public int reserve() {
+        int position = tail.getAndIncrement();
+        if (position < 0 || position > Integer.MAX_VALUE - (1 << FIRST_SEGMENT_SHIFT)) {
+            throw new IllegalStateException("Conversation log is full.");
+        }
+        return position;
+    }
+
+    /**
+     * Stores the message for a reserved position and publishes it, along with any later
+     * positions that were filled while this one was outstanding.
+     *
+     * @param position A position returned by reserve().
+     * @param msg      The message to store.
+     */
+    @Override
+    public void fill(int position, Message msg) {
+        int segment = segmentOf(position);
+        segmentFor(segment).set(offsetOf(position, segment), msg);
+        advancePublished();
+    }
+
+    /**
+     * Moves the published count past every slot that has been filled. If an earlier
+     * writer has not stored its message yet, this stops; that writer will carry the
+     * count past this slot when it finishes.
+     */
+    private void advancePublished() {
+        int current = published.get();
+        while (current < tail.get() && slotAt(current) != null) {
+            if (published.compareAndSet(current, current + 1)) {
+                current++;
+            } else {
+                current = published.get();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of messages visible to readers.
+     *
+     * @return The published size.
+     */
+    @Override
+    public int size() {
+        return published.get();
+    }
+
+    /**
+     * Returns the message at a published position.
+     *
+     * @param position The position to read.
+     * @return The message.
+     */
+    @Override
+    public Message get(int position) {
+        if (position < 0 || position >= published.get()) {
+            throw new IndexOutOfBoundsException("Position " + position + " is not published.");
+        }
+        return slotAt(position);
+    }
+
+    /**
+     * Returns the message at a position that has been filled, waiting until it is
+     * published. Only earlier appends still in progress hold it back, and they are
+     * between two stores, so this yields rather than blocks.
+     *
+     * @param position A position whose fill() has returned.
+     * @return The message.
+     */
+    @Override
+    public Message await(int position) {
+        while (published.get() <= position) {
+            // Help along an earlier writer that stored its message but was descheduled
+            // before advancing the count.
+            advancePublished();
+            if (published.get() <= position) {
+                Thread.yield();
+            }
+        }
+        return slotAt(position);
+    }
+
+    /**
+     * Copies a range of published messages.
+     *
+     * @param from The first position, inclusive.
+     * @param to   The last position, exclusive. Clamped to the published size.
+     * @return The messages in the range, oldest first.
+     */
+    @Override
+    public List<Message> range(int from, int to) {
+        int end = Math.min(to, published.get());
+        int start = Math.max(0, from);
+        List<Message> copy = new ArrayList<>(Math.max(0, end - start));
+        for (int position = start; position < end; position++) {
+            copy.add(slotAt(position));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,21 @@
+package src.main.app;
+
+import java.util.List;
+
+/**
+ * Team Project -- ConversationLogInterface
+ *
+ * Interface for the ConversationLog class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface ConversationLogInterface {
+    int append(Message msg);
+    int reserve();
+    void fill(int position, Message msg);
+    Message await(int position);
+    int size();
+    Message get(int position);
+    List<Message> range(int from, int to);
+}
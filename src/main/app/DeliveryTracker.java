@@ -0,0 +1,252 @@
+package src.main.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * DeliveryTracker
+ *
+ * At-least-once delivery for clients that acknowledge what they receive. Every push
+ * to such a client is numbered with the next sequence number of its recipient, sent
+ * as DELIVER,seq,push and kept in that recipient's unacked window until the client
+ * answers ACK,seq. Acks are cumulative, so one ACK trims the front of the window up
+ * to that number, and a client only needs to ack now and then.
+ *
+ * The window is resent when the user reconnects. While it is not empty the recipient
+ * has one check on the timing wheel, not one timer per message; when the oldest push
+ * has gone unacked for the ack timeout, the whole window is resent (go-back-N).
+ * The check only collects the frames; they are written on an executor, so a slow
+ * socket never holds up the wheel and the other timers on it.
+ * Clients drop numbers they have already seen. A window that grows past its limit
+ * means the client has stopped reading; the server disconnects it and the window
+ * is resent when it comes back.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class DeliveryTracker implements DeliveryTrackerInterface {
+    private final ConcurrentHashMap<String, Window> windows;
+    private final TimingWheel wheel;
+    private final long ackTimeoutMillis;
+    private final int windowLimit;
+    private final Redelivery redelivery;
+    private final Executor executor;
+
+    public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 10_000;
+    public static final int DEFAULT_WINDOW_LIMIT = 1024;
+
+    /**
+     * Called on the executor with the frames to resend to a user.
+     */
+    public interface Redelivery {
+        void redeliver(String username, List<String> frames);
+    }
+
+    public DeliveryTracker(TimingWheel wheel, long ackTimeoutMillis, int windowLimit, Redelivery redelivery) {
+        this(wheel, ackTimeoutMillis, windowLimit, redelivery, ForkJoinPool.commonPool());
+    }
+
+    public DeliveryTracker(TimingWheel wheel, long ackTimeoutMillis, int windowLimit, Redelivery redelivery,
+                           Executor executor) {
+        this.windows = new ConcurrentHashMap<>();
+        this.wheel = wheel;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.windowLimit = windowLimit;
+        this.redelivery = redelivery;
+        this.executor = executor;
+    }
+
+    private Window windowFor(String username) {
+        return windows.computeIfAbsent(username, k -> new Window());
+    }
+
+    /**
+     * Numbers a push and adds it to the recipient's window.
+     *
+     * @param username The recipient.
+     * @param push     The push as it would be sent without acks.
+     * @return The frame to send, DELIVER,seq,push.
+     */
+    @Override
+    public String track(String username, String push) {
+        Window window = windowFor(username);
+        synchronized (window) {
+            long seq = window.nextSeq++;
+            String frame = "DELIVER," + seq + "," + push;
+            window.unacked.addLast(new Pending(seq, frame, System.currentTimeMillis()));
+            if (window.check == null) {
+                scheduleCheck(username, window, ackTimeoutMillis);
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * Records a cumulative ack: every push numbered up to seq has arrived.
+     *
+     * @param username The user acking.
+     * @param seq      The highest sequence number received.
+     * @return The number of pushes removed from the window.
+     */
+    @Override
+    public int ack(String username, long seq) {
+        Window window = windows.get(username);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            int trimmed = 0;
+            while (!window.unacked.isEmpty() && window.unacked.peekFirst().seq <= seq) {
+                window.unacked.pollFirst();
+                trimmed++;
+            }
+            window.ackedThrough = Math.max(window.ackedThrough, Math.min(seq, window.nextSeq - 1));
+            return trimmed;
+        }
+    }
+
+    /**
+     * Returns every unacked frame of a user, oldest first, to be sent again on a new
+     * connection. The frames stay in the window until they are acked.
+     *
+     * @param username The user.
+     * @return The unacked frames.
+     */
+    @Override
+    public List<String> unacked(String username) {
+        Window window = windows.get(username);
+        List<String> frames = new ArrayList<>();
+        if (window == null) {
+            return frames;
+        }
+        synchronized (window) {
+            long now = System.currentTimeMillis();
+            for (Pending pending : window.unacked) {
+                pending.sentAt = now;
+                frames.add(pending.frame);
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Forgets the window of a user, for a client that logs in without acks.
+     *
+     * @param username The user.
+     * @return The pushes that were never acked, without their DELIVER prefix.
+     */
+    @Override
+    public List<String> release(String username) {
+        Window window = windows.remove(username);
+        List<String> pushes = new ArrayList<>();
+        if (window == null) {
+            return pushes;
+        }
+        synchronized (window) {
+            for (Pending pending : window.unacked) {
+                pushes.add(pending.frame.substring(pending.frame.indexOf(',', "DELIVER,".length()) + 1));
+            }
+            window.unacked.clear();
+            if (window.check != null) {
+                window.check.cancel();
+                window.check = null;
+            }
+        }
+        return pushes;
+    }
+
+    /**
+     * Tells whether a user's client has fallen too far behind on acks.
+     *
+     * @param username The user.
+     * @return true if the unacked window is over its limit.
+     */
+    @Override
+    public boolean isOverLimit(String username) {
+        return getUnackedCount(username) > windowLimit;
+    }
+
+    @Override
+    public int getUnackedCount(String username) {
+        Window window = windows.get(username);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            return window.unacked.size();
+        }
+    }
+
+    @Override
+    public long getAckedThrough(String username) {
+        Window window = windows.get(username);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            return window.ackedThrough;
+        }
+    }
+
+    // Callers hold the window's monitor.
+    private void scheduleCheck(String username, Window window, long delayMillis) {
+        window.check = wheel.schedule(() -> checkWindow(username, window), delayMillis);
+    }
+
+    /**
+     * Runs on the timing wheel. Hands the window to the executor for resending if its
+     * oldest push has waited too long, and checks again while anything is still unacked.
+     */
+    private void checkWindow(String username, Window window) {
+        List<String> resend = null;
+        synchronized (window) {
+            window.check = null;
+            Pending oldest = window.unacked.peekFirst();
+            if (oldest == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long waited = now - oldest.sentAt;
+            if (waited >= ackTimeoutMillis) {
+                resend = new ArrayList<>(window.unacked.size());
+                for (Pending pending : window.unacked) {
+                    pending.sentAt = now;
+                    resend.add(pending.frame);
+                }
+                scheduleCheck(username, window, ackTimeoutMillis);
+            } else {
+                scheduleCheck(username, window, ackTimeoutMillis - waited);
+            }
+        }
+        if (resend != null) {
+            List<String> frames = resend;
+            executor.execute(() -> redelivery.redeliver(username, frames));
+        }
+    }
+
+    /**
+     * The unacked pushes of one user. Guarded by its own monitor.
+     */
+    private static class Window {
+        private final ArrayDeque<Pending> unacked = new ArrayDeque<>();
+        private long nextSeq = 1;
+        private long ackedThrough;
+        private TimingWheel.Timeout check;
+    }
+
+    private static class Pending {
+        private final long seq;
+        private final String frame;
+        private long sentAt;
+
+        Pending(long seq, String frame, long sentAt) {
+            this.seq = seq;
+            this.frame = frame;
+            this.sentAt = sentAt;
+        }
+    }
+}
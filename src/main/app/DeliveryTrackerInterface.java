@@ -0,0 +1,21 @@
+package src.main.app;
+
+import java.util.List;
+
+/**
+ * Team Project -- DeliveryTrackerInterface
+ *
+ * Interface for the DeliveryTracker class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface DeliveryTrackerInterface {
+    String track(String username, String push);
+    int ack(String username, long seq);
+    List<String> unacked(String username);
+    List<String> release(String username);
+    boolean isOverLimit(String username);
+    int getUnackedCount(String username);
+    long getAckedThrough(String username);
+}
@@ -2,26 +2,32 @@ package src.main.app;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FriendsDB
  *
  * Implements the FriendsDBInterface to manage friends, pending requests, and blocked users.
+ * Changes that affect both users (requests, approvals, removals, blocks) run while holding
+ * the UserLockManager stripes of both users, so the two sides always stay in sync.
+ * Reads such as isFriend and isBlocked do not lock.
  *
  * @version 12/08/2024
  * @author Haiyan Xuan, Abhishek Bandaru
  */
 public class FriendsDB implements FriendsDBInterface {
-    private List<User> friends;
-    private List<User> pendingRequests;
-    private List<User> blockedUsers;
+    private static final Logger log = Logger.get(FriendsDB.class);
+    private Set<User> friends;
+    private Set<User> pendingRequests;
+    private Set<User> blockedUsers;
     private User owner;
 
     public FriendsDB(User owner) {
         this.owner = owner;
-        this.friends = new ArrayList<>();
-        this.pendingRequests = new ArrayList<>();
-        this.blockedUsers = new ArrayList<>();
+        this.friends = ConcurrentHashMap.newKeySet();
+        this.pendingRequests = ConcurrentHashMap.newKeySet();
+        this.blockedUsers = ConcurrentHashMap.newKeySet();
     }
 
     @Override
@@ -32,27 +38,33 @@ public class FriendsDB implements FriendsDBInterface {
     @Override
     public void sendFriendRequest(User user) {
         if (user == null) {
-            System.out.println("Cannot send friend request to a null user.");
+            log.debug("Cannot send friend request to a null user.");
             return;
         }
-        if (friends.contains(user)) {
-            System.out.println(user.getUsername() + " is already your friend.");
-            return;
-        }
-        if (pendingRequests.contains(user)) {
-            System.out.println("Friend request already sent to " + user.getUsername() + ".");
-            return;
-        }
-        if (blockedUsers.contains(user)) {
-            System.out.println("You have blocked " + user.getUsername() + ". Unblock to send a friend request.");
-            return;
-        }
-        pendingRequests.add(user);
-        System.out.println("Friend request sent to " + user.getUsername());
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            if (friends.contains(user)) {
+                log.debug("{} is already a friend of {}.", user.getUsername(), owner.getUsername());
+                return;
+            }
+            if (pendingRequests.contains(user)) {
+                log.debug("Friend request already sent to {}.", user.getUsername());
+                return;
+            }
+            if (blockedUsers.contains(user)) {
+                log.debug("{} has blocked {}. Unblock to send a friend request.", owner.getUsername(), user.getUsername());
+                return;
+            }
+            pendingRequests.add(user);
+            log.debug("Friend request sent from {} to {}", owner.getUsername(), user.getUsername());
 
-        FriendsDB recipientFriendsDB = user.getFriendsDB();
-        if (recipientFriendsDB != null) {
-            recipientFriendsDB.receiveFriendRequest(owner);
+            FriendsDB recipientFriendsDB = user.getFriendsDB();
+            if (recipientFriendsDB != null) {
+                recipientFriendsDB.receiveFriendRequest(owner);
+            }
+        } finally {
+            locks.unlock(owner, user);
         }
     }
 
@@ -62,58 +74,115 @@ public class FriendsDB implements FriendsDBInterface {
      */
     public void receiveFriendRequest(User user) {
         if (user == null) {
-            System.out.println("Received friend request from a null user.");
+            log.debug("Received friend request from a null user.");
             return;
         }
-        if (!pendingRequests.contains(user) && !friends.contains(user)) {
-            pendingRequests.add(user);
-            System.out.println("Received a friend request from " + user.getUsername());
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            if (!pendingRequests.contains(user) && !friends.contains(user)) {
+                pendingRequests.add(user);
+                log.debug("{} received a friend request from {}", owner.getUsername(), user.getUsername());
+            }
+        } finally {
+            locks.unlock(owner, user);
         }
     }
 
     @Override
     public void approveFriendRequest(User user) {
-        if (pendingRequests.contains(user)) {
-            friends.add(user);
-            pendingRequests.remove(user);
-
-            FriendsDB otherFriendsDB = user.getFriendsDB();
-            if (otherFriendsDB != null && !otherFriendsDB.getFriends().contains(owner)) {
-                otherFriendsDB.getFriends().add(owner);
+        if (user == null) {
+            log.debug("Cannot approve a friend request from a null user.");
+            return;
+        }
+        boolean approved;
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            approved = pendingRequests.remove(user);
+            if (approved) {
+                friends.add(user);
+                FriendsDB otherFriendsDB = user.getFriendsDB();
+                if (otherFriendsDB != null) {
+                    otherFriendsDB.pendingRequests.remove(owner);
+                    otherFriendsDB.friends.add(owner);
+                }
             }
+        } finally {
+            locks.unlock(owner, user);
+        }
 
+        if (approved) {
             User.saveUsersToFile();
-            System.out.println("Friend request approved between " + owner.getUsername() + " and " + user.getUsername());
+            log.debug("Friend request approved between {} and {}", owner.getUsername(), user.getUsername());
         } else {
-            System.out.println("No pending friend request from " + user.getUsername());
+            log.debug("No pending friend request from {}", user.getUsername());
         }
     }
 
     @Override
     public void rejectFriendRequest(User user) {
-        if (pendingRequests.remove(user)) {
-            System.out.println("Friend request from " + user.getUsername() + " rejected.");
+        if (user == null) {
+            log.debug("Cannot reject a friend request from a null user.");
+            return;
+        }
+        boolean rejected;
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            rejected = pendingRequests.remove(user);
+            FriendsDB otherFriendsDB = user.getFriendsDB();
+            if (rejected && otherFriendsDB != null) {
+                otherFriendsDB.pendingRequests.remove(owner);
+            }
+        } finally {
+            locks.unlock(owner, user);
+        }
+
+        if (rejected) {
+            log.debug("Friend request from {} rejected.", user.getUsername());
         } else {
-            System.out.println("No pending friend request from " + user.getUsername());
+            log.debug("No pending friend request from {}", user.getUsername());
         }
     }
 
     @Override
     public void removeFriend(User user) {
-        if (friends.remove(user)) {
-            FriendsDB otherFriendsDB = user.getFriendsDB();
-            if (otherFriendsDB != null) {
-                otherFriendsDB.getFriends().remove(owner);
-            }
-            System.out.println(user.getUsername() + " has been removed from friends.");
+        if (user == null) {
+            log.debug("Cannot remove a null user.");
+            return;
+        }
+        boolean removed;
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            removed = unfriend(user);
+        } finally {
+            locks.unlock(owner, user);
+        }
+
+        if (removed) {
+            log.debug("{} has been removed from the friends of {}.", user.getUsername(), owner.getUsername());
         } else {
-            System.out.println(user.getUsername() + " was not found in the friends list.");
+            log.debug("{} was not found in the friends of {}.", user.getUsername(), owner.getUsername());
+        }
+    }
+
+    /**
+     * Removes the friendship on both sides. Callers must hold the locks of both users.
+     */
+    private boolean unfriend(User user) {
+        boolean removed = friends.remove(user);
+        FriendsDB otherFriendsDB = user.getFriendsDB();
+        if (otherFriendsDB != null) {
+            removed |= otherFriendsDB.friends.remove(owner);
         }
+        return removed;
     }
 
     @Override
     public boolean isFriend(User user) {
-        return friends.contains(user);
+        return user != null && friends.contains(user);
     }
 
     @Override
@@ -124,37 +193,46 @@ public class FriendsDB implements FriendsDBInterface {
     @Override
     public void blockUser(User user) {
         if (user == null) {
-            System.out.println("Cannot block a null user.");
+            log.debug("Cannot block a null user.");
             return;
         }
-        if (!blockedUsers.contains(user)) {
-            removeFriend(user); // Remove from friends if present
-            blockedUsers.add(user);
+        boolean blocked;
+        UserLockManager locks = UserLockManager.getShared();
+        locks.lock(owner, user);
+        try {
+            blocked = blockedUsers.add(user);
+            if (blocked) {
+                unfriend(user); // Remove from friends if present
+            }
+        } finally {
+            locks.unlock(owner, user);
+        }
 
+        if (blocked) {
             User.saveUsersToFile();
-            System.out.println(owner.getUsername() + " has blocked " + user.getUsername());
+            log.debug("{} has blocked {}", owner.getUsername(), user.getUsername());
         } else {
-            System.out.println(owner.getUsername() + " has already blocked " + user.getUsername());
+            log.debug("{} has already blocked {}", owner.getUsername(), user.getUsername());
         }
     }
 
     @Override
     public void unblockUser(User user) {
         if (user == null) {
-            System.out.println("Cannot unblock a null user.");
+            log.debug("Cannot unblock a null user.");
             return;
         }
         if (blockedUsers.remove(user)) {
             User.saveUsersToFile();
-            System.out.println(owner.getUsername() + " has unblocked " + user.getUsername());
+            log.debug("{} has unblocked {}", owner.getUsername(), user.getUsername());
         } else {
-            System.out.println(user.getUsername() + " is not in your blocked users list.");
+            log.debug("{} is not blocked by {}.", user.getUsername(), owner.getUsername());
         }
     }
 
     @Override
     public boolean isBlocked(User user) {
-        return blockedUsers.contains(user);
+        return user != null && blockedUsers.contains(user);
     }
 
     @Override
@@ -163,13 +241,13 @@ public class FriendsDB implements FriendsDBInterface {
     }
 
     public ArrayList<User> getUsers() {
-        return new ArrayList<>(User.getAllUsers());
+        return new ArrayList<>(UserRegistry.getShared().getUsers());
     }
 
 
     public boolean hasPendingRequest(User friend) {
         if (friend == null) {
-            System.out.println("Cannot check pending request for a null user.");
+            log.debug("Cannot check pending request for a null user.");
             return false;
         }
         return pendingRequests.contains(friend);
@@ -0,0 +1,141 @@
+package src.main.app;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram
+ *
+ * Lock-free log-linear histogram in the style of HdrHistogram. Values below 16 get
+ * a bucket each; above that, every power of two is split into 16 buckets, so any
+ * recorded value is known to within about 6% whatever its size. Recording is an
+ * index computation and one atomic increment, cheap enough to run on every command.
+ * Percentiles are read from a moving target and are approximate while writers run.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class Histogram implements HistogramInterface {
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.total = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> exponent);
+        return SUB_BUCKETS + exponent * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    /** Returns the largest value that lands in a bucket. */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+
+    /**
+     * Records one value. Negative values are recorded as 0.
+     *
+     * @param value The value, such as a latency in microseconds or a fan-out size.
+     */
+    @Override
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        total.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Records the time since a start taken with System.nanoTime(), in microseconds.
+     *
+     * @param startNanos The start time.
+     */
+    @Override
+    public void recordSince(long startNanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    @Override
+    public long getCount() {
+        return total.sum();
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long n = total.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /**
+     * Returns the value at a percentile, rounded up to the top of its bucket and never
+     * above the largest value recorded.
+     *
+     * @param percentile Between 0 and 100.
+     * @return The value, or 0 if nothing was recorded.
+     */
+    @Override
+    public long getPercentile(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Formats the histogram as count=..,mean=..,p50=..,p99=..,p999=..,max=..
+     *
+     * @return The summary.
+     */
+    @Override
+    public String summary() {
+        return "count=" + getCount()
+                + ",mean=" + Math.round(getMean())
+                + ",p50=" + getPercentile(50)
+                + ",p99=" + getPercentile(99)
+                + ",p999=" + getPercentile(99.9)
+                + ",max=" + getMax();
+    }
+}
@@ -0,0 +1,19 @@
+package src.main.app;
+
+/**
+ * Team Project -- HistogramInterface
+ *
+ * Interface for the Histogram class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface HistogramInterface {
+    void record(long value);
+    void recordSince(long startNanos);
+    long getCount();
+    long getMax();
+    double getMean();
+    long getPercentile(double percentile);
+    String summary();
+}
@@ -0,0 +1,280 @@
+package src.main.app;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LogSink
+ *
+ * Bounded ring buffer between the threads that log and the one thread that writes.
+ * A logging thread claims a slot with one CAS, stores the level, logger, pattern and
+ * arguments in the preallocated slot and returns; the pattern is only filled in and
+ * printed later by the "log-writer" thread, so no handler thread ever waits on stdout.
+ *
+ * When the ring is three quarters full, lines below WARN are sampled, keeping one in
+ * -Dchat.log.sample (default 16). When it is full, lines are dropped. Either way the
+ * writer reports how many were lost, so logging can never hold up the server.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class LogSink implements LogSinkInterface {
+    private final Slot[] slots;
+    private final int mask;
+    private final int highWater;
+    private final int sampleRate;
+    private final PrintStream out;
+    private final AtomicLong tail;
+    private final AtomicLong sampleCounter;
+    private final LongAdder dropped;
+    private final LongAdder sampledOut;
+    private final StringBuilder line;
+    private volatile long head;
+    private volatile boolean writerIdle;
+    private long reportedLost;
+    private Thread writer;
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    private static final int BATCH_SIZE = 256;
+    private static final LogSink shared = createShared();
+
+    /** One preallocated log line. Written by the thread that claimed it, read by the writer. */
+    private static final class Slot {
+        private volatile long published;
+        private long timestamp;
+        private Logger.Level level;
+        private String logger;
+        private String thread;
+        private String pattern;
+        private Object a;
+        private Object b;
+        private Object c;
+    }
+
+    /**
+     * Creates a sink.
+     *
+     * @param capacity   The number of lines the ring holds, rounded up to a power of two.
+     * @param sampleRate Keep one in this many lines below WARN while the ring is nearly full.
+     * @param out        Where lines are written, or null for whatever System.out is at the time.
+     */
+    public LogSink(int capacity, int sampleRate, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.highWater = size - size / 4;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.out = out;
+        this.tail = new AtomicLong();
+        this.sampleCounter = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.sampledOut = new LongAdder();
+        this.line = new StringBuilder(256);
+    }
+
+    private static LogSink createShared() {
+        LogSink sink = new LogSink(Integer.getInteger("chat.log.buffer", DEFAULT_CAPACITY),
+                Integer.getInteger("chat.log.sample", DEFAULT_SAMPLE_RATE), null);
+        sink.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(sink::flush, "log-flush"));
+        return sink;
+    }
+
+    /**
+     * Returns the sink every Logger writes to. Its writer thread is already running.
+     *
+     * @return The shared sink.
+     */
+    public static LogSink getShared() {
+        return shared;
+    }
+
+    /**
+     * Starts the daemon thread that writes queued lines. Does nothing if it is running.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (drain() == 0) {
+                    writerIdle = true;
+                    if (tail.get() == head) {
+                        LockSupport.parkNanos(this, 100_000_000L);
+                    }
+                    writerIdle = false;
+                }
+            }
+        }, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues one line. Never blocks.
+     *
+     * @return true if the line was queued, false if it was sampled out or dropped.
+     */
+    @Override
+    public boolean offer(Logger.Level level, String logger, String pattern, Object a, Object b, Object c) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            long used = claimed - head;
+            if (used >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+            if (used >= highWater && level.compareTo(Logger.Level.WARN) < 0
+                    && sampleCounter.getAndIncrement() % sampleRate != 0) {
+                sampledOut.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+
+        Slot slot = slots[(int) (claimed & mask)];
+        slot.timestamp = System.currentTimeMillis();
+        slot.level = level;
+        slot.logger = logger;
+        slot.thread = Thread.currentThread().getName();
+        slot.pattern = pattern;
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.published = claimed + 1;
+        if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Writes every line that is ready, on the calling thread.
+     *
+     * @return The number of lines written.
+     */
+    @Override
+    public synchronized int drain() {
+        int written = 0;
+        line.setLength(0);
+        long next = head;
+        while (true) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.published != next + 1) {
+                break;
+            }
+            format(slot);
+            slot.logger = null;
+            slot.thread = null;
+            slot.pattern = null;
+            slot.a = null;
+            slot.b = null;
+            slot.c = null;
+            head = ++next;
+            if (++written % BATCH_SIZE == 0) {
+                print();
+            }
+        }
+        long lost = dropped.sum() + sampledOut.sum();
+        if (lost > reportedLost) {
+            appendHeader(System.currentTimeMillis(), Logger.Level.WARN, "LogSink", "log-writer");
+            line.append("Log buffer overloaded: ").append(lost - reportedLost).append(" lines lost").append('\n');
+            reportedLost = lost;
+        }
+        print();
+        return written;
+    }
+
+    /**
+     * Writes everything queued so far and flushes the output.
+     */
+    @Override
+    public void flush() {
+        drain();
+        target().flush();
+    }
+
+    private PrintStream target() {
+        return out != null ? out : System.out;
+    }
+
+    private void print() {
+        if (line.length() > 0) {
+            target().print(line);
+            line.setLength(0);
+        }
+    }
+
+    private void appendHeader(long timestamp, Logger.Level level, String logger, String thread) {
+        line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()))
+                .append(' ').append(level);
+        if (level.name().length() < 5) {
+            line.append(' ');
+        }
+        line.append(" [").append(thread).append("] ").append(logger).append(" - ");
+    }
+
+    /** Fills each {} in the pattern with the next argument. A trailing Throwable is printed after the line. */
+    private void format(Slot slot) {
+        appendHeader(slot.timestamp, slot.level, slot.logger, slot.thread);
+        Object[] args = {slot.a, slot.b, slot.c};
+        int used = 0;
+        String pattern = slot.pattern;
+        int from = 0;
+        int at;
+        while (used < args.length && (at = pattern.indexOf("{}", from)) >= 0) {
+            line.append(pattern, from, at).append(args[used++]);
+            from = at + 2;
+        }
+        line.append(pattern, from, pattern.length()).append('\n');
+        for (int i = used; i < args.length; i++) {
+            if (args[i] instanceof Throwable) {
+                Throwable t = (Throwable) args[i];
+                line.append("    ").append(t).append('\n');
+                for (StackTraceElement element : t.getStackTrace()) {
+                    line.append("        at ").append(element).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lines dropped because the ring was full.
+     *
+     * @return The dropped count.
+     */
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of lines below WARN skipped while the ring was nearly full.
+     *
+     * @return The sampled-out count.
+     */
+    @Override
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+
+    /**
+     * Returns the number of lines waiting to be written.
+     *
+     * @return The backlog.
+     */
+    @Override
+    public int getBacklog() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,18 @@
+package src.main.app;
+
+/**
+ * Team Project -- LogSinkInterface
+ *
+ * Interface for the LogSink class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface LogSinkInterface {
+    boolean offer(Logger.Level level, String logger, String pattern, Object a, Object b, Object c);
+    int drain();
+    void flush();
+    long getDroppedCount();
+    long getSampledOutCount();
+    int getBacklog();
+}
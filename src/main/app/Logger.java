@@ -0,0 +1,135 @@
+package src.main.app;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logger
+ *
+ * Leveled logger for the server. Lines go through the asynchronous LogSink instead of
+ * System.out, so logging never takes the stdout lock on a handler thread.
+ *
+ * Patterns use {} for arguments and are only formatted by the writer thread. There is
+ * no varargs, so a call at a disabled level costs one comparison and allocates nothing.
+ *
+ * The default level comes from -Dchat.log.level (INFO). A package or class can be given
+ * its own level with -Dchat.log.level.&lt;prefix&gt;, for example
+ * -Dchat.log.level.src.main.app.FriendsDB=DEBUG; the longest matching prefix wins.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class Logger implements LoggerInterface {
+    private final String name;
+    private final String shortName;
+    private final LogSink sink;
+    private volatile int threshold;
+
+    public enum Level { TRACE, DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final String PROPERTY = "chat.log.level";
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final Map<String, Level> overrides = new ConcurrentHashMap<>();
+
+    public Logger(String name, LogSink sink) {
+        this.name = name;
+        this.shortName = name.substring(name.lastIndexOf('.') + 1);
+        this.sink = sink;
+        this.threshold = resolve(name).ordinal();
+    }
+
+    /**
+     * Returns the logger for a class, creating it on first use.
+     *
+     * @param type The class doing the logging.
+     * @return The shared logger for that class.
+     */
+    public static Logger get(Class<?> type) {
+        return loggers.computeIfAbsent(type.getName(), name -> new Logger(name, LogSink.getShared()));
+    }
+
+    /**
+     * Changes the level of every logger whose name starts with a prefix, overriding
+     * the system properties. An empty prefix changes the default.
+     *
+     * @param prefix A package or class name.
+     * @param level  The new level.
+     */
+    public static void setLevel(String prefix, Level level) {
+        overrides.put(prefix, level);
+        for (Logger logger : loggers.values()) {
+            logger.threshold = resolve(logger.name).ordinal();
+        }
+    }
+
+    /** Finds the level configured for the longest prefix of a logger name. */
+    static Level resolve(String name) {
+        String prefix = name;
+        while (true) {
+            Level level = overrides.get(prefix);
+            if (level == null) {
+                String value = System.getProperty(prefix.isEmpty() ? PROPERTY : PROPERTY + "." + prefix);
+                level = parse(value);
+            }
+            if (level != null) {
+                return level;
+            }
+            if (prefix.isEmpty()) {
+                return Level.INFO;
+            }
+            int dot = prefix.lastIndexOf('.');
+            prefix = dot < 0 ? "" : prefix.substring(0, dot);
+        }
+    }
+
+    private static Level parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * Logs a line if the level is enabled. A Throwable passed after the last argument
+     * the pattern uses is printed with its stack trace.
+     *
+     * @param level   The level.
+     * @param pattern The message, with {} where each argument goes.
+     * @param a       The first argument, or null.
+     * @param b       The second argument, or null.
+     * @param c       The third argument, or null.
+     */
+    @Override
+    public void log(Level level, String pattern, Object a, Object b, Object c) {
+        if (level.ordinal() >= threshold) {
+            sink.offer(level, shortName, pattern, a, b, c);
+        }
+    }
+
+    public void debug(String pattern) { log(Level.DEBUG, pattern, null, null, null); }
+    public void debug(String pattern, Object a) { log(Level.DEBUG, pattern, a, null, null); }
+    public void debug(String pattern, Object a, Object b) { log(Level.DEBUG, pattern, a, b, null); }
+    public void debug(String pattern, Object a, Object b, Object c) { log(Level.DEBUG, pattern, a, b, c); }
+
+    public void info(String pattern) { log(Level.INFO, pattern, null, null, null); }
+    public void info(String pattern, Object a) { log(Level.INFO, pattern, a, null, null); }
+    public void info(String pattern, Object a, Object b) { log(Level.INFO, pattern, a, b, null); }
+
+    public void warn(String pattern) { log(Level.WARN, pattern, null, null, null); }
+    public void warn(String pattern, Object a) { log(Level.WARN, pattern, a, null, null); }
+    public void warn(String pattern, Object a, Object b) { log(Level.WARN, pattern, a, b, null); }
+
+    public void error(String pattern) { log(Level.ERROR, pattern, null, null, null); }
+    public void error(String pattern, Object a) { log(Level.ERROR, pattern, a, null, null); }
+    public void error(String pattern, Object a, Object b) { log(Level.ERROR, pattern, a, b, null); }
+}
@@ -0,0 +1,14 @@
+package src.main.app;
+
+/**
+ * Team Project -- LoggerInterface
+ *
+ * Interface for the Logger class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface LoggerInterface {
+    boolean isEnabled(Logger.Level level);
+    void log(Logger.Level level, String pattern, Object a, Object b, Object c);
+}
@@ -2,56 +2,156 @@ package src.main.app;
 
 import java.io.File;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Message
  *
  * Represents a message between two users, which can be either text or photo.
+ * Messages are the bulk of the heap for chat-heavy users, so they are stored compactly:
+ * participants as user IDs, the timestamp as epoch milliseconds, a one-byte type tag and
+ * the content (or photo path) as UTF-8 bytes. The User, LocalDateTime and File views
+ * are rebuilt on demand by the getters.
+ *
+ * IDs grow in the order messages are created, and carry the number of the conversation
+ * they belong to in their low Conversation.NUMBER_BITS bits.
  *
  * @version 12/08/2024
  * @author Haiyan Xuan, Rohan Uddaraju
  */
 public class Message implements Serializable, MessageInterface {
-    private User sender;
-    private User recipient;
-    private String content;
-    private File photo;
-    private LocalDateTime timestamp;
+    private final long id;
+    private final long timestamp;
+    private final int senderId;
+    private final int recipientId;
+    private final byte type;
+    private volatile byte state;
+    private volatile byte[] content;
+
+    public static final byte TYPE_TEXT = 0;
+    public static final byte TYPE_PHOTO = 1;
 
-    private static final long serialVersionUID = 1L;
+    private static final byte EDITED = 1;
+    private static final byte DELETED = 2;
+    private static final long serialVersionUID = 2L;
+    private static final AtomicLong nextId = new AtomicLong(1);
 
     public Message(User sender, User recipient, String content) {
-        this.sender = sender;
-        this.recipient = recipient;
-        this.content = content;
-        this.photo = null;
-        this.timestamp = LocalDateTime.now();
+        this(sender, recipient, TYPE_TEXT, content);
     }
 
     public Message(User sender, User recipient, File photo) {
-        this.sender = sender;
-        this.recipient = recipient;
-        this.photo = photo;
-        this.content = null;
-        this.timestamp = LocalDateTime.now();
+        this(sender, recipient, TYPE_PHOTO, photo == null ? null : photo.getPath());
     }
 
+    private Message(User sender, User recipient, byte type, String content) {
+        int conversation = sender == null || recipient == null
+                ? 0 : Conversation.between(sender, recipient).getNumber();
+        this.id = nextId.getAndIncrement() << Conversation.NUMBER_BITS | conversation;
+        this.timestamp = System.currentTimeMillis();
+        this.senderId = sender == null ? 0 : sender.getId();
+        this.recipientId = recipient == null ? 0 : recipient.getId();
+        this.type = type;
+        this.content = content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+    }
 
-    public User getSender() { return sender; }
-    public User getRecipient() { return recipient; }
-    public String getContent() { return content; }
-    public File getPhoto() { return photo; }
-    public LocalDateTime getTimestamp() { return timestamp; }
+    public long getId() { return id; }
+    public int getSenderId() { return senderId; }
+    public int getRecipientId() { return recipientId; }
+    public User getSender() { return User.getUserById(senderId); }
+    public User getRecipient() { return User.getUserById(recipientId); }
+    public byte getType() { return type; }
+    public long getTimestampMillis() { return timestamp; }
+    public boolean isEdited() { return (state & EDITED) != 0; }
+    public boolean isDeleted() { return (state & DELETED) != 0; }
 
-    @Override
-    public String toString() {
-        if (content != null) {
-            return "[" + timestamp.toString() + "] " + sender.getUsername() + ": " + content;
-        } else if (photo != null) {
-            return "[" + timestamp.toString() + "] " + sender.getUsername() + " sent a photo: " + photo.getName();
+    public String getContent() {
+        byte[] bytes = content;
+        return type == TYPE_TEXT && bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    public File getPhoto() {
+        byte[] bytes = content;
+        return type == TYPE_PHOTO && bytes != null ? new File(new String(bytes, StandardCharsets.UTF_8)) : null;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the UTF-8 length of the content, without decoding it.
+     *
+     * @return The content size in bytes, or 0 for deleted messages.
+     */
+    public int getContentLength() {
+        byte[] bytes = content;
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * Replaces the text of this message. Only called by the Conversation that holds it.
+     *
+     * @param text The new message content.
+     * @return true if the message was edited, false if it had already been deleted.
+     */
+    public synchronized boolean edit(String text) {
+        if (isDeleted()) {
+            return false;
+        }
+        this.content = text.getBytes(StandardCharsets.UTF_8);
+        this.state |= EDITED;
+        return true;
+    }
+
+    /**
+     * Turns this message into a tombstone. The slot stays in the conversation so
+     * message positions never shift, but the content and photo are dropped.
+     *
+     * @return true if the message was deleted, false if it already was.
+     */
+    public synchronized boolean markDeleted() {
+        if (isDeleted()) {
+            return false;
+        }
+        this.content = null;
+        this.state |= DELETED;
+        return true;
+    }
+
+    /**
+     * Writes the wire form of this message straight into a response being built,
+     * so pages of messages are encoded without an intermediate String per message.
+     *
+     * @param sb The builder to append to.
+     * @return The same builder.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        User sender = getSender();
+        sb.append('[').append(getTimestamp()).append("] #").append(id).append(' ')
+                .append(sender == null ? "unknown" : sender.getUsername());
+        byte[] bytes = content;
+        if (isDeleted()) {
+            sb.append(" deleted a message.");
+        } else if (bytes == null) {
+            sb.append(" sent an unknown type of message.");
+        } else if (type == TYPE_PHOTO) {
+            sb.append(" sent a photo: ").append(new File(new String(bytes, StandardCharsets.UTF_8)).getName());
         } else {
-            return "[" + timestamp.toString() + "] " + sender.getUsername() + " sent an unknown type of message.";
+            sb.append(": ").append(new String(bytes, StandardCharsets.UTF_8));
+            if (isEdited()) {
+                sb.append(" (edited)");
+            }
         }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(64 + getContentLength())).toString();
     }
 }
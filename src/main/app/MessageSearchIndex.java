@@ -0,0 +1,340 @@
+package src.main.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MessageSearchIndex
+ *
+ * Inverted index over the text of every message, kept per user so a search only
+ * ever touches the searching user's own conversations. Messages are indexed on a
+ * background thread, so sending a message never waits on the index.
+ *
+ * Posting lists hold message IDs in ascending order. IDs are handed out in send
+ * order, so walking a list backwards yields the most recent matches first.
+ * Deleting a message removes its postings, and editing one swaps the postings of
+ * the old text for those of the new, so lists only hold live matches.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class MessageSearchIndex implements MessageSearchIndexInterface {
+    private final ConcurrentHashMap<Integer, UserIndex> userIndexes;
+    private final ExecutorService indexer;
+    private final AtomicLong indexedCount;
+
+    public static final int DEFAULT_RESULT_LIMIT = 20;
+    private static final MessageSearchIndex shared = new MessageSearchIndex();
+
+    public MessageSearchIndex() {
+        this.userIndexes = new ConcurrentHashMap<>();
+        this.indexedCount = new AtomicLong();
+        this.indexer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "message-search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the index used by the messaging layer.
+     *
+     * @return The shared index.
+     */
+    public static MessageSearchIndex getShared() {
+        return shared;
+    }
+
+    /**
+     * Splits text into lower-case search terms made of letters and digits.
+     *
+     * @param text The text to tokenize.
+     * @return The distinct terms, in order of first appearance.
+     */
+    public static List<String> tokenize(String text) {
+        LinkedHashSet<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return new ArrayList<>(tokens);
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Queues a message to be indexed on the indexer thread.
+     *
+     * @param msg The message to index.
+     */
+    @Override
+    public void indexAsync(Message msg) {
+        if (msg != null && msg.getContent() != null) {
+            indexer.execute(() -> index(msg));
+        }
+    }
+
+    /**
+     * Queues the removal of a deleted message's postings.
+     *
+     * @param msg     The deleted message.
+     * @param content Its text before it was deleted.
+     */
+    @Override
+    public void removeAsync(Message msg, String content) {
+        reindexAsync(msg, content, null);
+    }
+
+    /**
+     * Queues the replacement of an edited message's postings: terms only in the old
+     * text are removed and terms of the new text are added. Callers queue edits of one
+     * message in the order they were made.
+     *
+     * @param msg      The edited message.
+     * @param previous Its text before the edit.
+     * @param current  Its text after the edit, or null if it was deleted.
+     */
+    @Override
+    public void reindexAsync(Message msg, String previous, String current) {
+        if (msg != null) {
+            indexer.execute(() -> reindex(msg, tokenize(previous), tokenize(current)));
+        }
+    }
+
+    private void reindex(Message msg, List<String> previous, List<String> current) {
+        reindexFor(msg.getSenderId(), previous, current, msg.getId());
+        if (msg.getRecipientId() != msg.getSenderId()) {
+            reindexFor(msg.getRecipientId(), previous, current, msg.getId());
+        }
+    }
+
+    private void reindexFor(int userId, List<String> previous, List<String> current, long messageId) {
+        UserIndex userIndex = current.isEmpty() ? userIndexes.get(userId)
+                : userIndexes.computeIfAbsent(userId, k -> new UserIndex());
+        if (userIndex != null) {
+            userIndex.replace(previous, current, messageId);
+        }
+    }
+
+    /**
+     * Adds a message to the posting lists of both participants.
+     *
+     * @param msg The message to index.
+     */
+    @Override
+    public void index(Message msg) {
+        String content = msg == null ? null : msg.getContent();
+        if (content == null) {
+            return;
+        }
+        List<String> tokens = tokenize(content);
+        indexFor(msg.getSenderId(), tokens, msg.getId());
+        if (msg.getRecipientId() != msg.getSenderId()) {
+            indexFor(msg.getRecipientId(), tokens, msg.getId());
+        }
+        indexedCount.incrementAndGet();
+    }
+
+    private void indexFor(int userId, List<String> tokens, long messageId) {
+        userIndexes.computeIfAbsent(userId, k -> new UserIndex()).add(tokens, messageId);
+    }
+
+    /**
+     * Blocks until every message queued before this call has been indexed.
+     */
+    @Override
+    public void flush() {
+        try {
+            indexer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Indexer failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of messages indexed so far.
+     *
+     * @return The indexed message count.
+     */
+    @Override
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    /**
+     * Returns how many message IDs a user's posting lists hold, one per distinct term
+     * of each indexed message.
+     *
+     * @param user The user.
+     * @return The number of postings.
+     */
+    @Override
+    public int getPostingCount(User user) {
+        UserIndex userIndex = userIndexes.get(user.getId());
+        return userIndex == null ? 0 : userIndex.count();
+    }
+
+    /**
+     * Finds the most recent messages of a user that contain every term of a query.
+     *
+     * @param user   The user searching their history.
+     * @param query  The search text.
+     * @param friend If not null, only the conversation with this user is searched.
+     * @param limit  The maximum number of results.
+     * @return Matching messages, newest first.
+     */
+    @Override
+    public List<Message> search(User user, String query, User friend, int limit) {
+        List<Message> results = new ArrayList<>();
+        List<String> terms = tokenize(query);
+        if (user == null || terms.isEmpty() || limit <= 0) {
+            return results;
+        }
+        UserIndex userIndex = userIndexes.get(user.getId());
+        if (userIndex == null) {
+            return results;
+        }
+        userIndex.collect(terms, friend, limit, results);
+        return results;
+    }
+
+    /**
+     * Resolves a message ID from a posting list, skipping tombstones, messages outside
+     * the requested conversation, and edited messages that no longer contain the terms.
+     */
+    private static Message resolve(long messageId, List<String> terms, User friend) {
+        Conversation conversation = Conversation.findByMessageId(messageId);
+        if (conversation == null || (friend != null && !conversation.hasParticipant(friend))) {
+            return null;
+        }
+        Message msg = conversation.getMessage(messageId);
+        if (msg == null || msg.isDeleted() || msg.getContent() == null) {
+            return null;
+        }
+        if (msg.isEdited() && !tokenize(msg.getContent()).containsAll(terms)) {
+            return null;
+        }
+        return msg;
+    }
+
+    /**
+     * Posting lists of a single user. Guarded by its own monitor so the indexer thread
+     * and searching handler threads of different users never contend.
+     */
+    private static class UserIndex {
+        private final HashMap<String, Postings> postings = new HashMap<>();
+
+        synchronized void add(List<String> tokens, long messageId) {
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, k -> new Postings()).add(messageId);
+            }
+        }
+
+        synchronized int count() {
+            int count = 0;
+            for (Postings list : postings.values()) {
+                count += list.size;
+            }
+            return count;
+        }
+
+        synchronized void replace(List<String> previous, List<String> current, long messageId) {
+            for (String token : previous) {
+                if (!current.contains(token)) {
+                    Postings list = postings.get(token);
+                    if (list != null && list.remove(messageId) && list.size == 0) {
+                        postings.remove(token);
+                    }
+                }
+            }
+            add(current, messageId);
+        }
+
+        synchronized void collect(List<String> terms, User friend, int limit, List<Message> results) {
+            Postings[] lists = new Postings[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return;
+                }
+            }
+            // Drive the intersection from the shortest list, newest IDs first.
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            Postings driver = lists[0];
+            for (int i = driver.size - 1; i >= 0 && results.size() < limit; i--) {
+                long messageId = driver.ids[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.length && inAll; j++) {
+                    inAll = lists[j].contains(messageId);
+                }
+                if (inAll) {
+                    Message msg = resolve(messageId, terms, friend);
+                    if (msg != null) {
+                        results.add(msg);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorted, growable list of message IDs.
+     */
+    private static class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long messageId) {
+            if (size > 0 && ids[size - 1] >= messageId) {
+                int pos = Arrays.binarySearch(ids, 0, size, messageId);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, messageId);
+                return;
+            }
+            insertAt(size, messageId);
+        }
+
+        private void insertAt(int pos, long messageId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = messageId;
+            size++;
+        }
+
+        boolean remove(long messageId) {
+            int pos = Arrays.binarySearch(ids, 0, size, messageId);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long messageId) {
+            return Arrays.binarySearch(ids, 0, size, messageId) >= 0;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package src.main.app;
+
+import java.util.List;
+
+/**
+ * Team Project -- MessageSearchIndexInterface
+ *
+ * Interface for the MessageSearchIndex class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface MessageSearchIndexInterface {
+    void indexAsync(Message msg);
+    void index(Message msg);
+    void removeAsync(Message msg, String content);
+    void reindexAsync(Message msg, String previous, String current);
+    void flush();
+    long getIndexedCount();
+    int getPostingCount(User user);
+    List<Message> search(User user, String query, User friend, int limit);
+}
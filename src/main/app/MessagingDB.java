@@ -3,6 +3,7 @@ package src.main.app;
 import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -10,18 +11,21 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * This class implements the MessagingDBInterface.
  * It manages sending and receiving text and photo messages between users.
+ * Messages live in the Conversation shared by both participants; this class only
+ * keeps the owner's read cursor for each conversation.
  *
  * @version 12/08/2024
  * @author Haiyan Xuan, Rohan Uddaraju, Abhishek Bandaru
  */
 public class MessagingDB implements MessagingDBInterface, Serializable {
-    private ConcurrentHashMap<String, ArrayList<Message>> messages;
+    private static final Logger log = Logger.get(MessagingDB.class);
+    private ConcurrentHashMap<Integer, Integer> readCursors;
     private User owner;
 
     private static final long serialVersionUID = 1L;
 
     public MessagingDB(User owner) {
-        messages = new ConcurrentHashMap<>();
+        readCursors = new ConcurrentHashMap<>();
         this.owner = owner;
     }
 
@@ -34,10 +38,10 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
     @Override
     public ArrayList<String> getMessages(User recipient) {
         ArrayList<String> messageList = new ArrayList<>();
-        ArrayList<Message> msgObjects = messages.get(recipient.getUsername());
-        if (msgObjects != null) {
-            for (Message msg : msgObjects) {
-                if (msg.getContent() != null) {
+        Conversation conversation = Conversation.find(owner, recipient);
+        if (conversation != null) {
+            for (Message msg : conversation.getMessages()) {
+                if (!msg.isDeleted() && msg.getContent() != null) {
                     messageList.add(msg.toString());
                 }
             }
@@ -45,6 +49,24 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
         return messageList;
     }
 
+    /**
+     * Retrieves one page of the conversation with a specific user, ending just before a cursor.
+     * Only the requested slice of the log is copied, so the cost does not grow with history length.
+     *
+     * @param recipient    The user whose messages are to be retrieved.
+     * @param beforeCursor The cursor returned by the previous page, or -1 for the newest messages.
+     * @param limit        The maximum number of log entries to read.
+     * @return The page; empty if the users have no conversation.
+     */
+    @Override
+    public Conversation.Page getMessagePage(User recipient, int beforeCursor, int limit) {
+        Conversation conversation = recipient == null ? null : Conversation.find(owner, recipient);
+        if (conversation == null) {
+            return new Conversation.Page(new ArrayList<>(), 0);
+        }
+        return conversation.getPage(beforeCursor, limit);
+    }
+
     /**
      * Retrieves photo messages exchanged with a specific user.
      *
@@ -54,10 +76,10 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
     @Override
     public ArrayList<File> getPhotos(User recipient) {
         ArrayList<File> photoList = new ArrayList<>();
-        ArrayList<Message> msgObjects = messages.get(recipient.getUsername());
-        if (msgObjects != null) {
-            for (Message msg : msgObjects) {
-                if (msg.getPhoto() != null) {
+        Conversation conversation = Conversation.find(owner, recipient);
+        if (conversation != null) {
+            for (Message msg : conversation.getMessages()) {
+                if (!msg.isDeleted() && msg.getPhoto() != null) {
                     photoList.add(msg.getPhoto());
                 }
             }
@@ -74,25 +96,46 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
      */
     @Override
     public boolean addMessage(String text, User recipient) {
+        return postMessage(text, recipient) != null;
+    }
+
+    /**
+     * Adds a text message to the conversation with a recipient and returns it,
+     * so the caller can hand its ID back to the client.
+     *
+     * @param text      The message content.
+     * @param recipient The user to send the message to.
+     * @return The stored message, or null if it could not be sent.
+     */
+    @Override
+    public Message postMessage(String text, User recipient) {
         if (recipient == null || text == null || text.isEmpty()) {
-            return false;
+            return null;
         }
+        ChatEvents.AddMessage event = new ChatEvents.AddMessage();
+        event.begin();
+        Message msg = null;
         if (canMessage(recipient)) {
-            Message msg = new Message(owner, recipient, text);
-
-            messages.computeIfAbsent(recipient.getUsername(), k -> new ArrayList<>()).add(msg);
-
-            recipient.getMessagingDB().receiveMessage(msg);
+            msg = new Message(owner, recipient, text);
+            Conversation.between(owner, recipient).append(msg);
+            MessageSearchIndex.getShared().indexAsync(msg);
 
-            System.out.println("Message sent from " + owner.getUsername() + " to " + recipient.getUsername() + ": " + text);
-            return true;
+            log.debug("Message sent from {} to {}", owner.getUsername(), recipient.getUsername());
         }
-        return false;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sender = owner.getUsername();
+            event.recipient = recipient.getUsername();
+            event.payloadSize = text.length();
+            event.stored = msg != null;
+            event.commit();
+        }
+        return msg;
     }
 
-
     /**
-     * Deletes a specific text message from the conversation with a recipient.
+     * Deletes every text message with the given content that the owner sent to a recipient.
+     * Prefer {@link #deleteMessage(long)}, which targets a single message in constant time.
      *
      * @param text      The message content to delete.
      * @param recipient The user whose conversation the message is in.
@@ -103,11 +146,97 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
         if (recipient == null || text == null || text.isEmpty()) {
             return false;
         }
-        ArrayList<Message> msgList = messages.get(recipient.getUsername());
-        if (msgList != null) {
-            return msgList.removeIf(msg -> text.equals(msg.getContent()));
+        Conversation conversation = Conversation.find(owner, recipient);
+        if (conversation == null) {
+            return false;
         }
-        return false;
+        boolean deleted = false;
+        for (Message msg : conversation.getMessages()) {
+            if (msg.getSenderId() == owner.getId() && text.equals(msg.getContent())) {
+                deleted |= conversation.delete(msg.getId());
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Looks up a message by ID in one of the owner's conversations.
+     *
+     * @param messageId The ID of the message.
+     * @return The message, or null if it does not exist, was deleted, or the owner is not part of it.
+     */
+    @Override
+    public Message findMessage(long messageId) {
+        Conversation conversation = Conversation.findByMessageId(messageId);
+        if (conversation == null || !conversation.hasParticipant(owner)) {
+            return null;
+        }
+        Message msg = conversation.getMessage(messageId);
+        return msg == null || msg.isDeleted() ? null : msg;
+    }
+
+    /**
+     * Deletes a message the owner sent. The message is replaced by a tombstone in the
+     * shared conversation, so it disappears for both participants.
+     *
+     * @param messageId The ID of the message to delete.
+     * @return true if the message was deleted, false otherwise.
+     */
+    @Override
+    public boolean deleteMessage(long messageId) {
+        Message msg = findMessage(messageId);
+        if (msg == null || msg.getSenderId() != owner.getId()) {
+            return false;
+        }
+        // Under the message's monitor, the text read here is the one being deleted, and
+        // index updates for this message are queued in the order they happen.
+        synchronized (msg) {
+            String content = msg.getContent();
+            if (!Conversation.findByMessageId(messageId).delete(messageId)) {
+                return false;
+            }
+            MessageSearchIndex.getShared().removeAsync(msg, content);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the text of a message the owner sent.
+     *
+     * @param messageId The ID of the message to edit.
+     * @param text      The new message content.
+     * @return true if the message was edited, false otherwise.
+     */
+    @Override
+    public boolean editMessage(long messageId, String text) {
+        if (text == null || text.isEmpty()) {
+            return false;
+        }
+        Message msg = findMessage(messageId);
+        if (msg == null || msg.getSenderId() != owner.getId()) {
+            return false;
+        }
+        synchronized (msg) {
+            String previous = msg.getContent();
+            if (!Conversation.findByMessageId(messageId).edit(messageId, text)) {
+                return false;
+            }
+            MessageSearchIndex.getShared().reindexAsync(msg, previous, text);
+        }
+        return true;
+    }
+
+    /**
+     * Searches the owner's message history for messages containing every word of a query.
+     *
+     * @param query  The search text.
+     * @param friend If not null, only the conversation with this user is searched.
+     * @param limit  The maximum number of results.
+     * @return Matching messages, newest first.
+     */
+    @Override
+    public List<Message> searchMessages(String query, User friend, int limit) {
+        return MessageSearchIndex.getShared().search(owner, query, friend, limit);
     }
 
     /**
@@ -135,8 +264,7 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
         }
         if (canMessage(recipient)) {
             Message msg = new Message(owner, recipient, photo);
-            messages.computeIfAbsent(recipient.getUsername(), k -> new ArrayList<>()).add(msg);
-            recipient.getMessagingDB().receiveMessage(msg);
+            Conversation.between(owner, recipient).append(msg);
             return true;
         }
         return false;
@@ -144,16 +272,54 @@ public class MessagingDB implements MessagingDBInterface, Serializable {
 
     /**
      * Receives a message from another user.
+     * Only needed for messages created outside addMessage/photoMessage, since those
+     * already land in the conversation shared with this user.
      *
      * @param msg The message to receive.
      */
     @Override
     public void receiveMessage(Message msg) {
-        if (msg != null) {
-            messages.computeIfAbsent(msg.getSender().getUsername(), k -> new ArrayList<>()).add(msg);
+        if (msg != null && msg.getSender() != null) {
+            Conversation.between(msg.getSender(), owner).append(msg);
+
+            if (log.isEnabled(Logger.Level.DEBUG)) {
+                log.debug("Message #{} received by {}", msg.getId(), owner.getUsername());
+            }
+        }
+    }
 
-            System.out.println("Message received by " + owner.getUsername() + " from " + msg.getSender().getUsername() + ": " + msg.getContent());
+    /**
+     * Counts the messages in the conversation with a user that the owner has not read yet.
+     *
+     * @param user The other participant.
+     * @return The number of unread messages.
+     */
+    @Override
+    public int getUnreadCount(User user) {
+        if (user == null) {
+            return 0;
+        }
+        Conversation conversation = Conversation.find(owner, user);
+        if (conversation == null) {
+            return 0;
+        }
+        return Math.max(0, conversation.size() - readCursors.getOrDefault(user.getId(), 0));
+    }
+
+    /**
+     * Moves the owner's read cursor to the end of the conversation with a user.
+     *
+     * @param user The other participant.
+     */
+    @Override
+    public void markRead(User user) {
+        if (user == null) {
+            return;
+        }
+        Conversation conversation = Conversation.find(owner, user);
+        if (conversation != null) {
+            readCursors.put(user.getId(), conversation.size());
         }
     }
 
-} 
\ No newline at end of file
+}
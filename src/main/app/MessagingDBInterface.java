@@ -2,6 +2,7 @@ package src.main.app;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Team Project -- MessagingDBInterface
@@ -13,12 +14,20 @@ import java.util.ArrayList;
  */
 public interface MessagingDBInterface {
     ArrayList<String> getMessages(User recipient);
+    Conversation.Page getMessagePage(User recipient, int beforeCursor, int limit);
     ArrayList<File> getPhotos(User recipient);
     boolean addMessage(String text, User recipient);
+    Message postMessage(String text, User recipient);
     boolean deleteMessage(String text, User recipient);
+    Message findMessage(long messageId);
+    boolean deleteMessage(long messageId);
+    boolean editMessage(long messageId, String text);
+    List<Message> searchMessages(String query, User friend, int limit);
     boolean canMessage(User user);
     boolean photoMessage(File photo, User recipient);
 
     void receiveMessage(Message msg);
+    int getUnreadCount(User user);
+    void markRead(User user);
 }
 
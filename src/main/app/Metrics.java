@@ -0,0 +1,103 @@
+package src.main.app;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics
+ *
+ * Registry of the server's counters, gauges and histograms, reported by the
+ * admin-only STATS command. Metrics are created on first use and looked up by name;
+ * hot paths should keep the returned object rather than look it up every time.
+ * Latencies are recorded in microseconds.
+ *
+ * Names used by the server: command.&lt;COMMAND&gt; (latency per command),
+ * connections.opened/closed/active, users.online, fanout.presence and
+ * fanout.broadcast (recipients per push), persist.users and persist.inbox
+ * (save times), auth.* (the AuthExecutor), commands.slow (see SlowCommandLog),
+ * net.bytes_in/bytes_out/frames_in/frames_out, connections.queued and
+ * connections.oldest_unsent_ms (see ConnectionStats).
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class Metrics implements MetricsInterface {
+    private final ConcurrentHashMap<String, LongAdder> counters;
+    private final ConcurrentHashMap<String, LongSupplier> gauges;
+    private final ConcurrentHashMap<String, Histogram> histograms;
+
+    private static final Metrics shared = new Metrics();
+
+    public Metrics() {
+        this.counters = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+        this.histograms = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the registry reported by STATS.
+     *
+     * @return The shared registry.
+     */
+    public static Metrics getShared() {
+        return shared;
+    }
+
+    @Override
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Registers a value that is read when the metrics are reported, replacing any
+     * earlier gauge of the same name.
+     *
+     * @param name  The gauge name.
+     * @param value Supplies the current value.
+     */
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Records the time since a start taken with System.nanoTime(), in microseconds.
+     *
+     * @param name       The histogram name.
+     * @param startNanos The start time.
+     */
+    @Override
+    public void recordSince(String name, long startNanos) {
+        histogram(name).recordSince(startNanos);
+    }
+
+    /**
+     * Formats every metric, sorted by name, as name=value entries joined by ';'.
+     * Histograms are written as name{count=..,mean=..,p50=..,p99=..,p999=..,max=..}.
+     *
+     * @return The report.
+     */
+    @Override
+    public String report() {
+        Map<String, String> entries = new ConcurrentSkipListMap<>();
+        counters.forEach((name, counter) -> entries.put(name, String.valueOf(counter.sum())));
+        gauges.forEach((name, gauge) -> entries.put(name, String.valueOf(gauge.getAsLong())));
+        histograms.forEach((name, histogram) -> entries.put(name, "{" + histogram.summary() + "}"));
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(e.getKey()).append(e.getValue().startsWith("{") ? "" : "=").append(e.getValue());
+        }
+        return sb.toString();
+    }
+}
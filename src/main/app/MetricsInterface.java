@@ -0,0 +1,20 @@
+package src.main.app;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Team Project -- MetricsInterface
+ *
+ * Interface for the Metrics class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface MetricsInterface {
+    LongAdder counter(String name);
+    Histogram histogram(String name);
+    void gauge(String name, LongSupplier value);
+    void recordSince(String name, long startNanos);
+    String report();
+}
@@ -0,0 +1,242 @@
+package src.main.app;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OfflineInbox
+ *
+ * Holds the pushes (messages, friend requests, blocks, ...) addressed to users who are
+ * not connected, so that a client which logs in learns about them in a few batched
+ * frames instead of polling every conversation. Each user's inbox is bounded: when it
+ * is full the oldest event is dropped and counted, and the client is told how many it
+ * missed so it can fall back to GET_MESSAGES.
+ *
+ * Inboxes are written to disk on a background thread, with bursts of changes
+ * coalesced into one save, and reloaded when the server starts.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class OfflineInbox implements OfflineInboxInterface {
+    private static final Logger log = Logger.get(OfflineInbox.class);
+    private static final Histogram persistLatency = Metrics.getShared().histogram("persist.inbox");
+    private final ConcurrentHashMap<String, Box> boxes;
+    private final int capacity;
+    private final String fileName;
+    private final AtomicBoolean savePending;
+    private final ExecutorService saver;
+
+    public static final int DEFAULT_CAPACITY = 500;
+    public static final int BATCH_SIZE = 100;
+    /** Separates events inside one INBOX frame; ClientHandler rejects text that contains it. */
+    public static final char EVENT_SEPARATOR = '\u001E';
+    private static final String FILE_NAME = "offlineInbox.ser";
+    private static final OfflineInbox shared =
+            new OfflineInbox(Integer.getInteger("chat.inbox.capacity", DEFAULT_CAPACITY), FILE_NAME);
+
+    public OfflineInbox(int capacity, String fileName) {
+        this.boxes = new ConcurrentHashMap<>();
+        this.capacity = capacity;
+        this.fileName = fileName;
+        this.savePending = new AtomicBoolean();
+        this.saver = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "offline-inbox-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the inbox used by the server.
+     *
+     * @return The shared inbox.
+     */
+    public static OfflineInbox getShared() {
+        return shared;
+    }
+
+    /**
+     * Returns a user's inbox. Its monitor orders deliveries with logins and logouts:
+     * the server holds it while deciding between pushing live and storing.
+     *
+     * @param username The user.
+     * @return The user's inbox, created if needed.
+     */
+    @Override
+    public Box boxFor(String username) {
+        return boxes.computeIfAbsent(username, k -> new Box());
+    }
+
+    /**
+     * Stores an event for a user who is offline.
+     *
+     * @param username The recipient.
+     * @param event    The push, exactly as it would have been sent.
+     */
+    @Override
+    public void store(String username, String event) {
+        Box box = boxFor(username);
+        synchronized (box) {
+            if (box.events.size() >= capacity) {
+                box.events.pollFirst();
+                box.dropped++;
+            }
+            box.events.addLast(event);
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Removes every stored event of a user and encodes them as frames: one
+     * INBOX_TRUNCATED,count frame if events were dropped, then INBOX,count,events
+     * frames of up to BATCH_SIZE events joined by EVENT_SEPARATOR, oldest first.
+     *
+     * @param username The user who just logged in.
+     * @return The frames to send; empty if there is nothing pending.
+     */
+    @Override
+    public List<String> drain(String username) {
+        Box box = boxes.get(username);
+        List<String> frames = new ArrayList<>();
+        if (box == null) {
+            return frames;
+        }
+        synchronized (box) {
+            if (box.dropped > 0) {
+                frames.add("INBOX_TRUNCATED," + box.dropped);
+            }
+            while (!box.events.isEmpty()) {
+                int count = Math.min(BATCH_SIZE, box.events.size());
+                StringBuilder frame = new StringBuilder("INBOX,").append(count).append(',');
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        frame.append(EVENT_SEPARATOR);
+                    }
+                    frame.append(box.events.pollFirst());
+                }
+                frames.add(frame.toString());
+            }
+            box.dropped = 0;
+        }
+        if (!frames.isEmpty()) {
+            scheduleSave();
+        }
+        return frames;
+    }
+
+    /**
+     * Returns how many events are waiting for a user.
+     *
+     * @param username The user.
+     * @return The number of stored events.
+     */
+    @Override
+    public int size(String username) {
+        Box box = boxes.get(username);
+        if (box == null) {
+            return 0;
+        }
+        synchronized (box) {
+            return box.events.size();
+        }
+    }
+
+    /**
+     * Saves the inboxes on the background thread, sharing a save that is already queued.
+     */
+    public void scheduleSave() {
+        if (savePending.compareAndSet(false, true)) {
+            saver.execute(() -> {
+                savePending.set(false);
+                save();
+            });
+        }
+    }
+
+    /**
+     * Writes every non-empty inbox to disk. The file is written beside the old one and
+     * then renamed over it, so a load (or a crash) never sees a half-written file.
+     */
+    @Override
+    public synchronized void save() {
+        long start = System.nanoTime();
+        HashMap<String, Box> copy = new HashMap<>();
+        for (Map.Entry<String, Box> e : boxes.entrySet()) {
+            Box box = e.getValue();
+            synchronized (box) {
+                if (!box.events.isEmpty() || box.dropped > 0) {
+                    Box snapshot = new Box();
+                    snapshot.events.addAll(box.events);
+                    snapshot.dropped = box.dropped;
+                    copy.put(e.getKey(), snapshot);
+                }
+            }
+        }
+        String tempName = fileName + ".tmp";
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tempName, false))) {
+                out.writeObject(copy);
+            }
+            Files.move(Paths.get(tempName), Paths.get(fileName),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error saving offline inbox: {}", e.getMessage());
+        }
+        persistLatency.recordSince(start);
+        SlowCommandLog.recordPersistence(System.nanoTime() - start);
+    }
+
+    /**
+     * Loads the inboxes saved by an earlier run, adding them to anything already stored.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized void load() {
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(fileName))) {
+            Object obj = in.readObject();
+            if (obj instanceof Map) {
+                for (Map.Entry<String, Box> e : ((Map<String, Box>) obj).entrySet()) {
+                    Box box = boxFor(e.getKey());
+                    synchronized (box) {
+                        ArrayDeque<String> newer = new ArrayDeque<>(box.events);
+                        box.events.clear();
+                        box.events.addAll(e.getValue().events);
+                        box.events.addAll(newer);
+                        box.dropped += e.getValue().dropped;
+                        while (box.events.size() > capacity) {
+                            box.events.pollFirst();
+                            box.dropped++;
+                        }
+                    }
+                }
+                log.info("Offline inbox loaded from file.");
+            }
+        } catch (FileNotFoundException e) {
+            log.info("Offline inbox file not found. Starting with empty inboxes.");
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("Error loading offline inbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * The pending events of one user. Guarded by its own monitor.
+     */
+    public static class Box implements Serializable {
+        private final ArrayDeque<String> events = new ArrayDeque<>();
+        private int dropped;
+
+        private static final long serialVersionUID = 1L;
+    }
+}
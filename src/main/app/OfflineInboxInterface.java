@@ -0,0 +1,20 @@
+package src.main.app;
+
+import java.util.List;
+
+/**
+ * Team Project -- OfflineInboxInterface
+ *
+ * Interface for the OfflineInbox class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface OfflineInboxInterface {
+    OfflineInbox.Box boxFor(String username);
+    void store(String username, String event);
+    List<String> drain(String username);
+    int size(String username);
+    void save();
+    void load();
+}
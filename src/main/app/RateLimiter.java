@@ -0,0 +1,277 @@
+package src.main.app;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RateLimiter
+ *
+ * Token buckets that stop a single client from flooding the server. Every command
+ * falls into a class (read, write, search or auth) and must get a token from two
+ * buckets for that class: one for the remote address and, once logged in, one for the
+ * user. The address buckets are a few times larger than the user buckets so that
+ * several people behind one address are not throttled as one.
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again
+ * (the generic cell rate algorithm), so taking a token is one compare-and-set and
+ * idle buckets need no timer to refill. Past a few thousand keys, buckets that have
+ * refilled completely are dropped by a sweep on the executor, at most once a second,
+ * so a request never scans the maps itself.
+ *
+ * Limits are read from -Dchat.ratelimit.&lt;class&gt;.rate (tokens per second) and
+ * -Dchat.ratelimit.&lt;class&gt;.burst, the address factor from
+ * -Dchat.ratelimit.address.factor, and the whole layer is switched off with
+ * -Dchat.ratelimit.enabled=false.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class RateLimiter implements RateLimiterInterface {
+    private final ConcurrentHashMap<String, TokenBucket[]> userBuckets;
+    private final ConcurrentHashMap<String, TokenBucket[]> addressBuckets;
+    private final double[] rates;
+    private final int[] bursts;
+    private final int addressFactor;
+    private final Executor executor;
+    private final AtomicLong nextSweepAt;
+    private volatile boolean enabled;
+
+    /** Once a map holds this many keys, buckets that have refilled completely are dropped. */
+    private static final int EVICTION_THRESHOLD = 10_000;
+    /** The shortest time between two sweeps. */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final RateLimiter shared = fromSystemProperties();
+
+    /**
+     * Command classes, each with its own limits.
+     */
+    public enum CommandClass {
+        READ(50, 100), WRITE(20, 40), SEARCH(5, 10), AUTH(1, 5);
+
+        private final double defaultRate;
+        private final int defaultBurst;
+
+        CommandClass(double defaultRate, int defaultBurst) {
+            this.defaultRate = defaultRate;
+            this.defaultBurst = defaultBurst;
+        }
+    }
+
+    public RateLimiter(double[] rates, int[] bursts, int addressFactor) {
+        this(rates, bursts, addressFactor, ForkJoinPool.commonPool());
+    }
+
+    public RateLimiter(double[] rates, int[] bursts, int addressFactor, Executor executor) {
+        this.userBuckets = new ConcurrentHashMap<>();
+        this.addressBuckets = new ConcurrentHashMap<>();
+        this.rates = rates.clone();
+        this.bursts = bursts.clone();
+        this.addressFactor = addressFactor;
+        this.executor = executor;
+        this.nextSweepAt = new AtomicLong(System.nanoTime());
+        this.enabled = true;
+    }
+
+    private static RateLimiter fromSystemProperties() {
+        CommandClass[] classes = CommandClass.values();
+        double[] rates = new double[classes.length];
+        int[] bursts = new int[classes.length];
+        for (CommandClass c : classes) {
+            String prefix = "chat.ratelimit." + c.name().toLowerCase() + ".";
+            rates[c.ordinal()] = Double.parseDouble(System.getProperty(prefix + "rate", String.valueOf(c.defaultRate)));
+            bursts[c.ordinal()] = Integer.getInteger(prefix + "burst", c.defaultBurst);
+        }
+        RateLimiter limiter = new RateLimiter(rates, bursts, Integer.getInteger("chat.ratelimit.address.factor", 4));
+        limiter.setEnabled(Boolean.parseBoolean(System.getProperty("chat.ratelimit.enabled", "true")));
+        return limiter;
+    }
+
+    /**
+     * Returns the limiter used by the client handlers.
+     *
+     * @return The shared limiter.
+     */
+    public static RateLimiter getShared() {
+        return shared;
+    }
+
+    /**
+     * Maps a protocol command to its class.
+     *
+     * @param command The upper-cased command name.
+     * @return The class, or null for commands that are never limited (heartbeats, acks, LOGOUT, EXIT).
+     */
+    public static CommandClass classify(String command) {
+        switch (command) {
+            case "LOGIN":
+            case "CREATE_ACCOUNT":
+                return CommandClass.AUTH;
+            case "SEARCH_USER":
+            case "SEARCH_MESSAGES":
+                return CommandClass.SEARCH;
+            case "SEND_MESSAGE":
+            case "ADD_FRIEND":
+            case "APPROVE_FRIEND_REQUEST":
+            case "REJECT_FRIEND_REQUEST":
+            case "REMOVE_FRIEND":
+            case "BLOCK_USER":
+            case "UNBLOCK_USER":
+            case "DELETE_MESSAGE":
+            case "EDIT_MESSAGE":
+                return CommandClass.WRITE;
+            case "PING":
+            case "PONG":
+            case "ACK":
+            case "ENABLE_ACKS":
+            case "LOGOUT":
+            case "EXIT":
+                return null;
+            default:
+                return CommandClass.READ;
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Takes a token for a command from the address bucket and, if a user is given,
+     * from that user's bucket. A command refused by the user bucket costs the address
+     * nothing, so one throttled user cannot use up the others' shared address bucket.
+     *
+     * @param username The logged-in user, or null before login.
+     * @param address  The client's remote address.
+     * @param command  The upper-cased command name.
+     * @return 0 if the command may run, otherwise how many milliseconds to wait.
+     */
+    @Override
+    public long acquire(String username, String address, String command) {
+        CommandClass commandClass = classify(command);
+        if (!enabled || commandClass == null) {
+            return 0;
+        }
+        int c = commandClass.ordinal();
+        long now = System.nanoTime();
+        TokenBucket addressBucket = bucketsFor(addressBuckets, address, addressFactor)[c];
+        long wait = addressBucket.tryAcquire(now);
+        if (wait == 0 && username != null) {
+            wait = bucketsFor(userBuckets, username, 1)[c].tryAcquire(now);
+            if (wait != 0) {
+                addressBucket.refund();
+            }
+        }
+        return wait == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+    }
+
+    private TokenBucket[] bucketsFor(ConcurrentHashMap<String, TokenBucket[]> map, String key, int factor) {
+        TokenBucket[] buckets = map.get(key);
+        if (buckets != null) {
+            return buckets;
+        }
+        if (map.size() >= EVICTION_THRESHOLD) {
+            requestSweep();
+        }
+        return map.computeIfAbsent(key, k -> {
+            TokenBucket[] fresh = new TokenBucket[rates.length];
+            for (int i = 0; i < fresh.length; i++) {
+                fresh[i] = new TokenBucket(rates[i] * factor, bursts[i] * factor);
+            }
+            return fresh;
+        });
+    }
+
+    /**
+     * Starts a sweep on the executor unless one started less than an interval ago.
+     */
+    private void requestSweep() {
+        long now = System.nanoTime();
+        long next = nextSweepAt.get();
+        if (now - next < 0 || !nextSweepAt.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            evictFull(addressBuckets, start);
+            evictFull(userBuckets, start);
+        });
+    }
+
+    /**
+     * Drops every set of buckets that has refilled completely; a fresh set behaves the same.
+     */
+    private static void evictFull(ConcurrentHashMap<String, TokenBucket[]> map, long now) {
+        map.values().removeIf(buckets -> {
+            for (TokenBucket bucket : buckets) {
+                if (!bucket.isFull(now)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Returns how many keys currently have buckets.
+     *
+     * @return The number of tracked users and addresses.
+     */
+    @Override
+    public int getTrackedKeyCount() {
+        return userBuckets.size() + addressBuckets.size();
+    }
+
+    /**
+     * A token bucket stored as the time it will next be full. Each token moves that
+     * time forward by one interval; a request is refused while the time is more than
+     * a full burst ahead of now.
+     */
+    static class TokenBucket {
+        private final AtomicLong fullAt;
+        private final long interval;
+        private final long tolerance;
+
+        TokenBucket(double ratePerSecond, int burst) {
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.tolerance = interval * (Math.max(1, burst) - 1);
+            this.fullAt = new AtomicLong(Long.MIN_VALUE);
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanoseconds until one is available.
+         */
+        long tryAcquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long start = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                long wait = start - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (fullAt.compareAndSet(current, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Gives back a token taken by tryAcquire.
+         */
+        void refund() {
+            while (true) {
+                long current = fullAt.get();
+                if (current == Long.MIN_VALUE || fullAt.compareAndSet(current, current - interval)) {
+                    return;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            long current = fullAt.get();
+            return current == Long.MIN_VALUE || current - now <= 0;
+        }
+    }
+}
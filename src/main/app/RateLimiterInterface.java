@@ -0,0 +1,14 @@
+package src.main.app;
+
+/**
+ * Team Project -- RateLimiterInterface
+ *
+ * Interface for the RateLimiter class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface RateLimiterInterface {
+    long acquire(String username, String address, String command);
+    int getTrackedKeyCount();
+}
@@ -0,0 +1,119 @@
+package src.main.app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Recorder
+ *
+ * Starts, dumps and stops the server's flight recording. The recording uses the JDK's
+ * "default" settings, which are meant to run in production, plus every ChatEvents event.
+ * It keeps the last -Dchat.jfr.maxage seconds (default 600) in a rolling buffer, so a
+ * dump taken right after an incident shows the minutes leading up to it.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class Recorder implements RecorderInterface {
+    private final Path directory;
+    private final Duration maxAge;
+    private Recording recording;
+
+    private static final Logger log = Logger.get(Recorder.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final Recorder shared = new Recorder(
+            Paths.get(System.getProperty("chat.jfr.dir", ".")),
+            Duration.ofSeconds(Long.getLong("chat.jfr.maxage", 600)));
+
+    public Recorder(Path directory, Duration maxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Returns the recorder used by the RECORDING command.
+     *
+     * @return The shared recorder.
+     */
+    public static Recorder getShared() {
+        return shared;
+    }
+
+    /**
+     * Starts recording. Does nothing if a recording is already running.
+     *
+     * @return true if a recording was started.
+     * @throws IOException If the JDK settings cannot be read.
+     */
+    @Override
+    public synchronized boolean start() throws IOException {
+        if (recording != null) {
+            return false;
+        }
+        Configuration settings;
+        try {
+            settings = Configuration.getConfiguration("default");
+        } catch (ParseException e) {
+            throw new IOException("Cannot read the default JFR settings", e);
+        }
+        Recording fresh = new Recording(settings);
+        fresh.setName("chat-server");
+        fresh.setToDisk(true);
+        fresh.setMaxAge(maxAge);
+        fresh.enable(ChatEvents.Command.class);
+        fresh.enable(ChatEvents.SaveUsers.class);
+        fresh.enable(ChatEvents.AddMessage.class);
+        fresh.enable(ChatEvents.Push.class);
+        fresh.enable(ChatEvents.Broadcast.class);
+        fresh.start();
+        recording = fresh;
+        log.info("Flight recording started");
+        return true;
+    }
+
+    /**
+     * Writes what has been recorded so far to a new file. Recording continues.
+     *
+     * @return The file written.
+     * @throws IOException If no recording is running or the file cannot be written.
+     */
+    @Override
+    public synchronized Path dump() throws IOException {
+        if (recording == null) {
+            throw new IOException("No recording is running");
+        }
+        Path file = directory.resolve("chat-" + LocalDateTime.now().format(FILE_TIME)
+                + "-" + System.nanoTime() % 1000 + ".jfr");
+        recording.dump(file);
+        log.info("Flight recording dumped to {}", file);
+        return file;
+    }
+
+    /**
+     * Stops and discards the recording.
+     *
+     * @return true if a recording was running.
+     */
+    @Override
+    public synchronized boolean stop() {
+        if (recording == null) {
+            return false;
+        }
+        recording.close();
+        recording = null;
+        log.info("Flight recording stopped");
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+}
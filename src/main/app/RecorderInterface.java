@@ -0,0 +1,19 @@
+package src.main.app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Team Project -- RecorderInterface
+ *
+ * Interface for the Recorder class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface RecorderInterface {
+    boolean start() throws IOException;
+    Path dump() throws IOException;
+    boolean stop();
+    boolean isRecording();
+}
@@ -3,6 +3,7 @@ package src.main.app;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -15,22 +16,75 @@ import java.util.concurrent.ConcurrentHashMap;
  * @author Madhavan Prasanna, Rohan Uddaraju
  */
 
-public class Server {
+public class Server implements ServerInterface {
+    private static final Logger log = Logger.get(Server.class);
+    private static final Histogram broadcastFanout = Metrics.getShared().histogram("fanout.broadcast");
     private ServerSocket serverSocket;
     private ConcurrentHashMap<String, ClientHandler> userClientMap;
+    private Thread acceptor;
+    private final DeliveryTracker deliveries = new DeliveryTracker(TimingWheel.getShared(),
+            Long.getLong("chat.ack.timeout", DeliveryTracker.DEFAULT_ACK_TIMEOUT_MILLIS),
+            Integer.getInteger("chat.ack.window", DeliveryTracker.DEFAULT_WINDOW_LIMIT),
+            this::redeliver);
 
+    /**
+     * Opens the listening socket and loads saved state. Call start() to accept clients.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
     public Server(int port) throws IOException {
         serverSocket = new ServerSocket(port);
         userClientMap = new ConcurrentHashMap<>();
-        System.out.println("Server started on port " + port);
+        OfflineInbox.getShared().load();
+        Metrics.getShared().gauge("users.online", userClientMap::size);
+        if (Boolean.getBoolean("chat.jfr")) {
+            Recorder.getShared().start();
+        }
+    }
 
-        while (true) {
-            Socket clientSocket = serverSocket.accept();
-            System.out.println("New client connected: " + clientSocket.getInetAddress());
+    /**
+     * Starts accepting clients on a "server-accept" thread, one handler thread per client.
+     * Returns at once; the thread runs until stop() is called.
+     */
+    @Override
+    public synchronized void start() {
+        if (acceptor != null) {
+            return;
+        }
+        acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket clientSocket = serverSocket.accept();
+                    log.debug("New client connected: {}", clientSocket.getInetAddress());
 
-            ClientHandler handler = new ClientHandler(clientSocket, this);
-            new Thread(handler).start();
+                    ClientHandler handler = new ClientHandler(clientSocket, this);
+                    new Thread(handler).start();
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        log.error("Error accepting a client: {}", e.getMessage());
+                    }
+                }
+            }
+        }, "server-accept");
+        acceptor.start();
+        log.info("Server started on port {}", getPort());
+    }
+
+    /**
+     * Stops accepting clients and disconnects every logged-in user.
+     */
+    @Override
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Error closing the server socket: {}", e.getMessage());
         }
+        for (ClientHandler handler : userClientMap.values()) {
+            handler.disconnect();
+        }
+        log.info("Server stopped");
     }
 
     public int getPort() {
@@ -49,14 +103,83 @@ public class Server {
     }
 
     /**
-     * Adds a user and their ClientHandler to the userClientMap.
+     * Adds a user and their ClientHandler to the userClientMap, then sends them what
+     * they missed: pushes a previous connection never acked, followed by their offline
+     * inbox. These are queued on the handler under the inbox monitor, so a push racing
+     * with the login is either stored and sent in the batch, or queued behind it; it is
+     * never lost or sent ahead of older events. The socket is written after the monitor
+     * is released.
      *
      * @param username The username of the user.
      * @param handler  The ClientHandler associated with the user.
      */
     public void addUserClient(String username, ClientHandler handler) {
-        userClientMap.put(username, handler);
-        System.out.println("User logged in: " + username);
+        OfflineInbox inbox = OfflineInbox.getShared();
+        boolean overLimit = false;
+        synchronized (inbox.boxFor(username)) {
+            userClientMap.put(username, handler);
+            List<String> resend = handler.isAcksEnabled() ? deliveries.unacked(username) : deliveries.release(username);
+            for (String frame : resend) {
+                handler.queueMessage(frame);
+            }
+            for (String frame : inbox.drain(username)) {
+                overLimit |= queuePush(username, handler, frame);
+            }
+        }
+        handler.flushQueued();
+        if (overLimit) {
+            disconnectLagging(username, handler);
+        }
+        UserDirectory.getShared().setOnline(username, true);
+        log.debug("User logged in: {}", username);
+    }
+
+    /**
+     * Queues a push for a connected user; the caller flushes the handler once it has
+     * released the inbox monitor. Clients that ack get it numbered and tracked until
+     * acked.
+     *
+     * @return true if the client is now too far behind on acks and should be disconnected.
+     */
+    private boolean queuePush(String username, ClientHandler handler, String message) {
+        if (!handler.isAcksEnabled()) {
+            handler.queueMessage(message);
+            return false;
+        }
+        handler.queueMessage(deliveries.track(username, message));
+        return deliveries.isOverLimit(username);
+    }
+
+    /**
+     * Disconnects a client that stopped acking; its window is resent when it reconnects.
+     */
+    private void disconnectLagging(String username, ClientHandler handler) {
+        log.warn("User {} is not acking pushes. Disconnecting.", username);
+        handler.disconnect();
+    }
+
+    /**
+     * Resends unacked pushes after the ack timeout. Called on the delivery tracker's
+     * executor. The inbox monitor is not held: every frame was already sent once, and
+     * a reconnecting user is sent the whole window by addUserClient() before any newer
+     * push, so a resent frame can only arrive late and be skipped by the client.
+     */
+    private void redeliver(String username, List<String> frames) {
+        ClientHandler handler = userClientMap.get(username);
+        if (handler != null && handler.isAcksEnabled()) {
+            for (String frame : frames) {
+                handler.sendMessage(frame);
+            }
+        }
+    }
+
+    /**
+     * Returns the tracker of pushes waiting for ACK.
+     *
+     * @return The delivery tracker.
+     */
+    public DeliveryTracker getDeliveryTracker() {
+        return deliveries;
     }
 
     /**
@@ -65,23 +188,77 @@ public class Server {
      * @param username The username of the user to remove.
      */
     public void removeUserClient(String username) {
-        userClientMap.remove(username);
-        System.out.println("User logged out: " + username);
+        synchronized (OfflineInbox.getShared().boxFor(username)) {
+            userClientMap.remove(username);
+        }
+        UserDirectory.getShared().setOnline(username, false);
+        log.debug("User logged out: {}", username);
     }
 
     /**
-     * Sends a message to a specific user.
+     * Sends a message to a specific user, or stores it in their offline inbox if they
+     * are not connected. With mailboxes enabled the push is posted to the recipient's
+     * mailbox, so it is ordered with everything else that user does.
      *
      * @param username The recipient's username.
      * @param message  The message to send.
      */
     public void sendToUser(String username, String message) {
-        ClientHandler handler = userClientMap.get(username);
-        if (handler != null) {
-            handler.sendMessage(message);
-            System.out.println("Sent to " + username + ": " + message);
+        sendToUser(username, message, true);
+    }
+
+    /**
+     * Sends a message to a specific user.
+     *
+     * @param username       The recipient's username.
+     * @param message        The message to send.
+     * @param storeIfOffline false for pushes that are stale by the next login, such as presence.
+     */
+    public void sendToUser(String username, String message, boolean storeIfOffline) {
+        User recipient = UserMailbox.isEnabled() ? User.getUserByUsername(username) : null;
+        if (recipient != null) {
+            UserMailbox.of(recipient).execute(() -> deliver(username, message, storeIfOffline));
         } else {
-            System.out.println("User " + username + " is not online.");
+            deliver(username, message, storeIfOffline);
+        }
+    }
+
+    private void deliver(String username, String message, boolean storeIfOffline) {
+        ChatEvents.Push event = new ChatEvents.Push();
+        event.begin();
+        OfflineInbox inbox = OfflineInbox.getShared();
+        long requested = System.nanoTime();
+        String outcome;
+        ClientHandler handler;
+        boolean overLimit = false;
+        synchronized (inbox.boxFor(username)) {
+            event.lockWait = System.nanoTime() - requested;
+            handler = userClientMap.get(username);
+            if (handler != null) {
+                overLimit = queuePush(username, handler, message);
+                outcome = "pushed";
+                log.debug("Pushed to {}", username);
+            } else if (storeIfOffline) {
+                inbox.store(username, message);
+                outcome = "stored";
+                log.debug("User {} is not online. Stored in their inbox.", username);
+            } else {
+                outcome = "dropped";
+                log.debug("User {} is not online.", username);
+            }
+        }
+        if (handler != null) {
+            handler.flushQueued();
+            if (overLimit) {
+                disconnectLagging(username, handler);
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.recipient = username;
+            event.payloadSize = message.length();
+            event.outcome = outcome;
+            event.commit();
         }
     }
 
@@ -91,10 +268,23 @@ public class Server {
      * @param message The message to broadcast.
      */
     public void broadcast(String message) {
+        ChatEvents.Broadcast event = new ChatEvents.Broadcast();
+        event.begin();
+        int recipients = 0;
         for (ClientHandler handler : userClientMap.values()) {
             handler.sendMessage(message);
+            recipients++;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.payloadSize = message.length();
+            event.recipients = recipients;
+            event.commit();
+        }
+        broadcastFanout.record(recipients);
+        if (log.isEnabled(Logger.Level.DEBUG)) {
+            log.debug("Broadcast to {} users", recipients);
         }
-        System.out.println("Broadcasted message: " + message);
     }
 
     /**
@@ -105,9 +295,9 @@ public class Server {
     public static void main(String[] args) {
         int port = 2424;
         try {
-            new Server(port);
+            new Server(port).start();
         } catch (IOException e) {
-            System.err.println("Failed to start the server: " + e.getMessage());
+            log.error("Failed to start the server: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,279 @@
+package src.main.app;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SlowCommandLog
+ *
+ * Records every client command that takes longer than a threshold, with enough detail to
+ * tell what made it slow: the argument and reply sizes, and its time split into mailbox
+ * queue wait, persistence (saving the user database or offline inbox), socket writes
+ * (its own replies and any pushes to other users) and the rest, spent in the handler.
+ *
+ * While a command runs, its Trace is attached to the thread running it, so User,
+ * OfflineInbox and ClientHandler.sendMessage can add their time without being passed
+ * anything. Slow commands are written by a LogSink of their own, so a handler only
+ * formats one line and never waits on the file.
+ *
+ * The threshold is -Dchat.slowlog.threshold milliseconds (default 100; negative turns
+ * the log off), with -Dchat.slowlog.threshold.&lt;COMMAND&gt; for a single command. Lines go
+ * to -Dchat.slowlog.file (slowCommands.log), which is rotated at -Dchat.slowlog.maxbytes
+ * (10 MB) keeping -Dchat.slowlog.files older files (5).
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class SlowCommandLog implements SlowCommandLogInterface {
+    private final long defaultThreshold;
+    private final Map<String, Long> thresholds;
+    private final LogSink sink;
+
+    public static final long DEFAULT_THRESHOLD_MS = 100;
+    private static final String PROPERTY = "chat.slowlog.threshold";
+    private static final ThreadLocal<Trace> current = new ThreadLocal<>();
+    private static final LongAdder slowCommands = Metrics.getShared().counter("commands.slow");
+    private static final SlowCommandLog shared = createShared();
+
+    /** The time and sizes collected for one command while it runs. */
+    public static final class Trace {
+        private final Object owner;
+        private final String command;
+        private final long start;
+        private long persistNanos;
+        private long writeNanos;
+        private long resultSize;
+        private int replies;
+        private int pushes;
+
+        private Trace(Object owner, String command) {
+            this.owner = owner;
+            this.command = command;
+            this.start = System.nanoTime();
+        }
+    }
+
+    /**
+     * Creates a slow-command log.
+     *
+     * @param thresholdMillis The default threshold in milliseconds, or negative to log nothing.
+     * @param overrides       Thresholds in milliseconds for single commands.
+     * @param sink            Where slow commands are written.
+     */
+    public SlowCommandLog(long thresholdMillis, Map<String, Long> overrides, LogSink sink) {
+        this.defaultThreshold = toNanos(thresholdMillis);
+        this.thresholds = new HashMap<>();
+        for (Map.Entry<String, Long> e : overrides.entrySet()) {
+            thresholds.put(e.getKey(), toNanos(e.getValue()));
+        }
+        this.sink = sink;
+    }
+
+    private static long toNanos(long millis) {
+        return millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static SlowCommandLog createShared() {
+        long threshold = Long.getLong(PROPERTY, DEFAULT_THRESHOLD_MS);
+        Map<String, Long> overrides = new HashMap<>();
+        for (String command : ClientHandler.COMMANDS) {
+            Long value = Long.getLong(PROPERTY + "." + command);
+            if (value != null) {
+                overrides.put(command, value);
+            }
+        }
+        RotatingFile file = new RotatingFile(Paths.get(System.getProperty("chat.slowlog.file", "slowCommands.log")),
+                Long.getLong("chat.slowlog.maxbytes", 10L * 1024 * 1024),
+                Integer.getInteger("chat.slowlog.files", 5));
+        LogSink sink = new LogSink(1024, 1, new PrintStream(file, false));
+        sink.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(sink::flush, "slowlog-flush"));
+        return new SlowCommandLog(threshold, overrides, sink);
+    }
+
+    /**
+     * Returns the log ClientHandler reports to.
+     *
+     * @return The shared slow-command log.
+     */
+    public static SlowCommandLog getShared() {
+        return shared;
+    }
+
+    /**
+     * Starts timing a command on the calling thread.
+     *
+     * @param owner   The handler running the command; writes to it count as its result.
+     * @param command The command name.
+     * @return The trace to pass to end(), or null if the log is off for this command.
+     */
+    @Override
+    public Trace begin(Object owner, String command) {
+        if (thresholds.getOrDefault(command, defaultThreshold) < 0) {
+            return null;
+        }
+        Trace trace = new Trace(owner, command);
+        current.set(trace);
+        return trace;
+    }
+
+    /**
+     * Finishes a command and writes it out if it took longer than its threshold.
+     *
+     * @param trace      The trace returned by begin(), or null.
+     * @param user       The user who sent the command, or null before login.
+     * @param parts      The command and its arguments.
+     * @param queueNanos How long the command waited before it started running.
+     * @return true if the command was logged as slow.
+     */
+    @Override
+    public boolean end(Trace trace, String user, String[] parts, long queueNanos) {
+        if (trace == null) {
+            return false;
+        }
+        current.remove();
+        long total = System.nanoTime() - trace.start + queueNanos;
+        if (total < thresholds.getOrDefault(trace.command, defaultThreshold)) {
+            return false;
+        }
+        slowCommands.increment();
+        long handler = Math.max(0, total - queueNanos - trace.persistNanos - trace.writeNanos);
+        StringBuilder line = new StringBuilder(160);
+        line.append(trace.command).append(" user=").append(user == null ? "-" : user);
+        appendMillis(line.append(" total="), total);
+        appendMillis(line.append(" queue="), queueNanos);
+        appendMillis(line.append(" handler="), handler);
+        appendMillis(line.append(" persist="), trace.persistNanos);
+        appendMillis(line.append(" write="), trace.writeNanos);
+        line.append(" args=");
+        for (int i = 1; i < parts.length; i++) {
+            line.append(i > 1 ? "," : "").append(parts[i].length());
+        }
+        line.append(" result=").append(trace.resultSize)
+                .append(" replies=").append(trace.replies)
+                .append(" pushes=").append(trace.pushes);
+        sink.offer(Logger.Level.WARN, "SlowCommandLog", "{}", line, null, null);
+        return true;
+    }
+
+    private static void appendMillis(StringBuilder line, long nanos) {
+        line.append(nanos / 1_000_000).append('.').append(nanos / 100_000 % 10).append("ms");
+    }
+
+    /**
+     * Adds time spent saving to disk to the command running on this thread, if any.
+     *
+     * @param nanos The time spent, including waiting for another save.
+     */
+    public static void recordPersistence(long nanos) {
+        Trace trace = current.get();
+        if (trace != null) {
+            trace.persistNanos += nanos;
+        }
+    }
+
+    /**
+     * Adds a socket write to the command running on this thread, if any.
+     *
+     * @param target The handler written to.
+     * @param nanos  The time the write took.
+     * @param size   The number of characters written.
+     */
+    public static void recordWrite(Object target, long nanos, int size) {
+        Trace trace = current.get();
+        if (trace != null) {
+            trace.writeNanos += nanos;
+            if (target == trace.owner) {
+                trace.replies++;
+                trace.resultSize += size;
+            } else {
+                trace.pushes++;
+            }
+        }
+    }
+
+    /**
+     * Writes every slow command queued so far.
+     */
+    @Override
+    public void flush() {
+        sink.flush();
+    }
+
+    /**
+     * A file that is renamed to file.1 (and older ones to file.2, ...) once it reaches a size.
+     * It is only created when the first line is written.
+     */
+    public static final class RotatingFile extends OutputStream {
+        private final Path path;
+        private final long maxBytes;
+        private final int keep;
+        private OutputStream out;
+        private long size;
+
+        public RotatingFile(Path path, long maxBytes, int keep) {
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.keep = keep;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) {
+                out = new FileOutputStream(path.toFile(), true);
+                size = Files.size(path);
+            }
+            if (size > 0 && size + len > maxBytes) {
+                rotate();
+            }
+            out.write(b, off, len);
+            size += len;
+        }
+
+        private void rotate() throws IOException {
+            out.close();
+            String name = path.toString();
+            Files.deleteIfExists(Paths.get(name + "." + keep));
+            for (int i = keep - 1; i >= 1; i--) {
+                Path older = Paths.get(name + "." + i);
+                if (Files.exists(older)) {
+                    Files.move(older, Paths.get(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (keep > 0) {
+                Files.move(path, Paths.get(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            out = new FileOutputStream(path.toFile(), false);
+            size = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
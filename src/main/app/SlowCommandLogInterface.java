@@ -0,0 +1,15 @@
+package src.main.app;
+
+/**
+ * Team Project -- SlowCommandLogInterface
+ *
+ * Interface for the SlowCommandLog class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface SlowCommandLogInterface {
+    SlowCommandLog.Trace begin(Object owner, String command);
+    boolean end(SlowCommandLog.Trace trace, String user, String[] parts, long queueNanos);
+    void flush();
+}
@@ -0,0 +1,204 @@
+package src.main.app;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TimingWheel
+ *
+ * Hashed timing wheel for connection timeouts. Time is cut into ticks and a timeout
+ * lands in the slot its deadline falls on, modulo the wheel size, along with the number
+ * of full turns left before it is due. Each tick only looks at one slot, so scheduling
+ * and expiring are O(1) and 100k connections cost 100k small objects, not 100k timers.
+ *
+ * Any thread may schedule or cancel. Only the ticker thread touches the slots: new
+ * timeouts wait in a lock-free queue until the next tick moves them into place, and
+ * cancelled ones are skipped when their slot comes round.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class TimingWheel implements TimingWheelInterface {
+    private static final Logger log = Logger.get(TimingWheel.class);
+    private final ArrayDeque<Timeout>[] slots;
+    private final int mask;
+    private final long tickMillis;
+    private final ConcurrentLinkedQueue<Timeout> incoming;
+    private final AtomicInteger pendingCount;
+    private final long startMillis;
+    private long tick;
+    private volatile Thread ticker;
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final TimingWheel shared = new TimingWheel(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, System.currentTimeMillis());
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.slots = newSlots(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.pendingCount = new AtomicInteger();
+    }
+
+    // Java cannot create a generic array, so the raw one is cast once, here.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<Timeout>[] newSlots(int size) {
+        return new ArrayDeque[size];
+    }
+
+    /**
+     * Returns the wheel used for connection heartbeats, starting its ticker on first use.
+     *
+     * @return The shared, running wheel.
+     */
+    public static TimingWheel getShared() {
+        shared.start();
+        return shared;
+    }
+
+    /**
+     * Starts a daemon thread that advances the wheel in real time. Does nothing if
+     * the wheel is already running.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                advance(System.currentTimeMillis());
+            }
+        }, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Schedules a task to run once, on the ticker thread, after a delay. The delay is
+     * rounded up to whole ticks. Tasks should be quick; slow work belongs elsewhere.
+     *
+     * @param task        The task.
+     * @param delayMillis The delay in milliseconds.
+     * @return A handle that can cancel the task.
+     */
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return scheduleAt(task, System.currentTimeMillis() + Math.max(0, delayMillis));
+    }
+
+    /**
+     * Schedules a task to run once, on the ticker thread, at a point in time.
+     *
+     * @param task           The task.
+     * @param deadlineMillis When to run it, in the wheel's clock.
+     * @return A handle that can cancel the task.
+     */
+    @Override
+    public Timeout scheduleAt(Runnable task, long deadlineMillis) {
+        Timeout timeout = new Timeout(task, deadlineMillis);
+        incoming.offer(timeout);
+        pendingCount.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * Runs every tick up to a point in time. Called by the ticker thread, or directly
+     * by tests with a fake clock. Must not be called from two threads at once.
+     *
+     * @param nowMillis The current time.
+     */
+    @Override
+    public synchronized void advance(long nowMillis) {
+        long target = (nowMillis - startMillis) / tickMillis;
+        while (tick <= target) {
+            transferIncoming();
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+        transferIncoming();
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled) {
+                pendingCount.decrementAndGet();
+                continue;
+            }
+            // Never place a timeout in a tick that has already run.
+            long due = Math.max(tick, (timeout.deadline - startMillis + tickMillis - 1) / tickMillis);
+            timeout.rounds = (due - tick) / slots.length;
+            slots[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> slot) {
+        Iterator<Timeout> it = slot.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+                pendingCount.decrementAndGet();
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                it.remove();
+                pendingCount.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    log.error("Timeout task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of scheduled timeouts that have not fired or been dropped.
+     *
+     * @return The pending timeout count.
+     */
+    @Override
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Stops the task from running. It is dropped from the wheel when its slot comes round.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
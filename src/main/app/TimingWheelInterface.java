@@ -0,0 +1,16 @@
+package src.main.app;
+
+/**
+ * Team Project -- TimingWheelInterface
+ *
+ * Interface for the TimingWheel class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface TimingWheelInterface {
+    TimingWheel.Timeout schedule(Runnable task, long delayMillis);
+    TimingWheel.Timeout scheduleAt(Runnable task, long deadlineMillis);
+    void advance(long nowMillis);
+    int getPendingCount();
+}
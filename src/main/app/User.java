@@ -5,7 +5,11 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Team Project -- User
@@ -18,6 +22,9 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 
 public class User implements Runnable, Serializable, UserInterface {
+    private static final Logger log = Logger.get(User.class);
+    private static final Histogram persistLatency = Metrics.getShared().histogram("persist.users");
+    private int id;
     private String name;
     private String username;
     private String password;
@@ -28,19 +35,30 @@ public class User implements Runnable, Serializable, UserInterface {
     private transient Thread userThread;
 
     private static final long serialVersionUID = 1L;
-    private static CopyOnWriteArrayList<User> users = new CopyOnWriteArrayList<>();
+    private static final UserRegistry registry = UserRegistry.getShared();
     private static final String FILE_NAME = "userDatabase.ser";
     private static final Object lock = new Object();
+    private static final AtomicBoolean savePending = new AtomicBoolean();
+    private static final ExecutorService saver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "user-database-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
 
 
-    private static String hashPassword(String password) {
+    // MessageDigest is not thread-safe and costly to look up, so each thread keeps one.
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashed = md.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hashed);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("Hashing algorithm not found.");
         }
+    });
+
+    private static String hashPassword(String password) {
+        // digest() resets the instance, so it is ready for the next call on this thread.
+        byte[] hashed = sha256.get().digest(password.getBytes());
+        return Base64.getEncoder().encodeToString(hashed);
     }
 
     public User(String name, String username, String password, String profile, String picture) throws IllegalArgumentException {
@@ -54,12 +72,14 @@ public class User implements Runnable, Serializable, UserInterface {
         this.picture = picture;
         this.friendsDB = new FriendsDB(this);
         this.messagingDB = new MessagingDB(this);
+        this.id = registry.assignId(this);
     }
 
     public boolean login(String handle, String pwd) {
         return this.username.equals(handle) && this.password.equals(hashPassword(pwd));
     }
 
+    public int getId() { return id; }
     @Override
     public String getName() { return name; }
     @Override
@@ -73,89 +93,121 @@ public class User implements Runnable, Serializable, UserInterface {
     public MessagingDB getMessagingDB() { return messagingDB; }
     public FriendsDB getFriendsDB() { return friendsDB; }
 
-    public static CopyOnWriteArrayList<User> getAllUsers() {
-        return users;
-    }
-
     public static void loadUsersFromFile() {
         try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
             synchronized (lock) {
                 Object obj = in.readObject();
-                if (obj instanceof CopyOnWriteArrayList) {
-                    users = (CopyOnWriteArrayList<User>) obj;
-                    System.out.println("Users loaded from file.");
-                    for (User user : users) {
-                        user.friendsDB = new FriendsDB(user);
-                        user.messagingDB = new MessagingDB(user);
-                        user.userThread = new Thread(user);
-                        user.userThread.start();
+                if (obj instanceof Collection) {
+                    registry.clear();
+                    for (Object loaded : (Collection<?>) obj) {
+                        User user = (User) loaded;
+                        registry.register(user);
+                        UserDirectory.getShared().addUser(user.getUsername());
                     }
+                    log.info("Users loaded from file.");
                 }
             }
         } catch (FileNotFoundException e) {
-            System.out.println("User database file not found. Starting with an empty user list.");
+            log.info("User database file not found. Starting with an empty user list.");
         } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Error loading users: " + e.getMessage());
+            log.error("Error loading users: {}", e.getMessage());
         }
     }
 
+    /**
+     * Writes every registered user to disk. The file keeps its original format, a
+     * CopyOnWriteArrayList of users, built once from the registry per save.
+     */
     public static void saveUsersToFile() {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(FILE_NAME, false))) {
-            synchronized (lock) {
-                out.writeObject(users);
-                System.out.println("Users saved to file.");
+        ChatEvents.SaveUsers event = new ChatEvents.SaveUsers();
+        event.begin();
+        long requested = System.nanoTime();
+        synchronized (lock) {
+            long start = System.nanoTime();
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(FILE_NAME, false))) {
+                out.writeObject(new CopyOnWriteArrayList<>(registry.getUsers()));
+                log.debug("Users saved to file.");
+            } catch (IOException e) {
+                log.error("Error saving users: {}", e.getMessage());
+            }
+            persistLatency.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.lockWait = start - requested;
+                event.userCount = registry.size();
+                event.fileSize = new File(FILE_NAME).length();
+                event.commit();
             }
-        } catch (IOException e) {
-            System.out.println("Error saving users: " + e.getMessage());
+        }
+        SlowCommandLog.recordPersistence(System.nanoTime() - requested);
+    }
+
+    /**
+     * Saves the user database on a background thread. Requests made while a save is
+     * still queued share that save, so a burst of registrations writes the file once
+     * instead of once per user.
+     */
+    public static void scheduleSave() {
+        if (savePending.compareAndSet(false, true)) {
+            saver.execute(() -> {
+                savePending.set(false);
+                saveUsersToFile();
+            });
         }
     }
 
     public static User addUser(String name, String username, String password, String profile, String picture) {
         if (!checkUserNameAvailability(username)) {
-            System.out.println("Username " + username + " is already taken.");
+            log.debug("Username {} is already taken.", username);
             return null;
         }
         try {
             User newUser = new User(name, username, password, profile, picture);
-            users.add(newUser);
-            saveUsersToFile();
+            if (!registry.register(newUser)) {
+                // Another client claimed the username between the check and the insert.
+                registry.release(newUser);
+                log.debug("Username {} is already taken.", username);
+                return null;
+            }
+            UserDirectory.getShared().addUser(newUser.getUsername());
+            scheduleSave();
             return newUser;
         } catch (IllegalArgumentException e) {
-            System.out.println("Error creating user: " + e.getMessage());
+            log.error("Error creating user: {}", e.getMessage());
             return null;
         }
     }
 
     public static boolean checkUserNameAvailability(String username) {
-        for (User user : users) {
-            if (user.username.equalsIgnoreCase(username)) {
-                return false;
-            }
-        }
-        return true;
+        return registry.isUsernameAvailable(username);
+    }
+
+    /**
+     * Looks up a user by ID. Messages only store the IDs of their participants,
+     * so this is how they get back to the User objects.
+     *
+     * @param id The user ID.
+     * @return The user, or null if no user has that ID.
+     */
+    public static User getUserById(int id) {
+        return registry.getById(id);
     }
 
     public static User getUserByUsername(String username) {
-        for (User user : users) {
-            if (user.username.equalsIgnoreCase(username)) {
-                return user;
-            }
-        }
-        return null;
+        return registry.getByUsername(username);
     }
 
     public static void displayAllUsers() {
-        for (User user : users) {
+        for (User user : registry.getUsers()) {
             System.out.println("Name: " + user.name + ", Username: " + user.username);
         }
     }
 
     @Override
     public String searchUser(String handle) {
-        for (User user : users) {
-            if (!friendsDB.isBlocked(user) && user.getUsername().equalsIgnoreCase(handle)) {
-                return user.toString();
-            }
+        User user = registry.getByUsername(handle);
+        if (user != null && !friendsDB.isBlocked(user)) {
+            return user.toString();
         }
         return "User Not Found";
     }
@@ -172,6 +224,12 @@ public class User implements Runnable, Serializable, UserInterface {
 
     private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
         ois.defaultReadObject();
+        // Users saved before IDs existed come back with 0; keep the counter ahead of any loaded ID.
+        if (id == 0) {
+            id = registry.assignId(this);
+        } else {
+            registry.restoreId(this);
+        }
         this.friendsDB = new FriendsDB(this);
         this.messagingDB = new MessagingDB(this);
         this.userThread = new Thread(this);
@@ -180,6 +238,6 @@ public class User implements Runnable, Serializable, UserInterface {
 
     @Override
     public void run() {
-        System.out.println("User thread for " + username + " is running.");
+        log.debug("User thread for {} is running.", username);
     }
 }
\ No newline at end of file
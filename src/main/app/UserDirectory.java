@@ -0,0 +1,202 @@
+package src.main.app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * UserDirectory
+ *
+ * Materialized online/offline list of every user, as sent in USER_LIST responses.
+ * Logins, logouts and registrations update one entry and bump a version counter,
+ * instead of every USER_LIST walking all users and asking the server who is online.
+ * The encoded list is built at most once per version and shared by every response
+ * for that version. A client that sends the version it already has gets "not modified",
+ * or just the entries that changed since, while that version is still in the change log.
+ * The list pushed on login is the cached encoding plus a delta up to now, so a burst
+ * of logins does not rebuild the whole list once per login.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class UserDirectory implements UserDirectoryInterface {
+    private final ConcurrentSkipListMap<String, Boolean> onlineByUsername;
+    private final String[] changeLog;
+    private volatile long version;
+    private volatile Snapshot snapshot;
+
+    public static final int CHANGE_LOG_SIZE = 1024;
+    private static final UserDirectory shared = new UserDirectory();
+
+    public UserDirectory() {
+        this.onlineByUsername = new ConcurrentSkipListMap<>();
+        this.changeLog = new String[CHANGE_LOG_SIZE];
+        this.snapshot = new Snapshot(0, "");
+    }
+
+    /**
+     * Returns the directory kept up to date by the server.
+     *
+     * @return The shared directory.
+     */
+    public static UserDirectory getShared() {
+        return shared;
+    }
+
+    private static String entry(String username, boolean online) {
+        return (online ? "online:" : "offline:") + username;
+    }
+
+    /**
+     * Adds a user as offline, unless they are already listed.
+     *
+     * @param username The new user's username.
+     */
+    @Override
+    public synchronized void addUser(String username) {
+        if (!onlineByUsername.containsKey(username)) {
+            record(username, false);
+        }
+    }
+
+    /**
+     * Marks a user online or offline.
+     *
+     * @param username The username.
+     * @param online   true on login, false on logout.
+     */
+    @Override
+    public synchronized void setOnline(String username, boolean online) {
+        Boolean previous = onlineByUsername.get(username);
+        if (previous == null || previous != online) {
+            record(username, online);
+        }
+    }
+
+    // Callers hold the monitor.
+    private void record(String username, boolean online) {
+        onlineByUsername.put(username, online);
+        long next = version + 1;
+        changeLog[(int) (next % CHANGE_LOG_SIZE)] = entry(username, online);
+        version = next;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the whole directory encoded as "status:username" entries joined by ';'.
+     * The encoding is cached, so it is only rebuilt after the directory changes.
+     *
+     * @return The current version and its encoding.
+     */
+    @Override
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current.getVersion() == version) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot.getVersion() != version) {
+                StringBuilder sb = new StringBuilder(snapshot.getEncoded().length() + 64);
+                for (Map.Entry<String, Boolean> e : onlineByUsername.entrySet()) {
+                    if (sb.length() > 0) {
+                        sb.append(';');
+                    }
+                    sb.append(e.getValue() ? "online:" : "offline:").append(e.getKey());
+                }
+                snapshot = new Snapshot(version, sb.toString());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the cached encoding, which may be a few versions old, rebuilding it only
+     * once it is halfway out of the change log. The changes since it can then always be
+     * read with getChangesSince, unless a burst larger than half the log comes in between.
+     *
+     * @return An encoded directory at some recent version.
+     */
+    @Override
+    public Snapshot getRecentSnapshot() {
+        Snapshot current = snapshot;
+        if (version - current.getVersion() < CHANGE_LOG_SIZE / 2) {
+            return current;
+        }
+        return getSnapshot();
+    }
+
+    /**
+     * Returns the entries that changed after a version, with only the latest state of
+     * each user, encoded like the full list.
+     *
+     * @param since The version the client already has.
+     * @return The current version and the changed entries, or null if that version has
+     *         left the change log (or is from the future) and the client needs the full list.
+     */
+    @Override
+    public synchronized Snapshot getChangesSince(long since) {
+        if (since < 0 || since > version || version - since > CHANGE_LOG_SIZE) {
+            return null;
+        }
+        Map<String, String> latest = new LinkedHashMap<>();
+        for (long v = since + 1; v <= version; v++) {
+            String change = changeLog[(int) (v % CHANGE_LOG_SIZE)];
+            String username = change.substring(change.indexOf(':') + 1);
+            latest.remove(username);
+            latest.put(username, change);
+        }
+        return new Snapshot(version, String.join(";", latest.values()));
+    }
+
+    /**
+     * An encoded directory (or set of changes) at one version, along with the response lines built from it.
+     * The lines are built on first use and then shared by every client at this version.
+     */
+    public static class Snapshot {
+        private final long version;
+        private final String encoded;
+        private volatile String userList;
+        private volatile String versionedUserList;
+
+        Snapshot(long version, String encoded) {
+            this.version = version;
+            this.encoded = encoded;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getEncoded() {
+            return encoded;
+        }
+
+        /**
+         * @return The line "USER_LIST,entries" sent to clients that do not track versions.
+         */
+        public String getUserList() {
+            String line = userList;
+            if (line == null) {
+                line = "USER_LIST," + (encoded.isEmpty() ? "No users found." : encoded);
+                userList = line;
+            }
+            return line;
+        }
+
+        /**
+         * @return The line "USER_LIST_FULL,version,entries" sent to clients that track versions.
+         */
+        public String getVersionedUserList() {
+            String line = versionedUserList;
+            if (line == null) {
+                line = "USER_LIST_FULL," + version + "," + encoded;
+                versionedUserList = line;
+            }
+            return line;
+        }
+    }
+}
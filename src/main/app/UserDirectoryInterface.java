@@ -0,0 +1,18 @@
+package src.main.app;
+
+/**
+ * Team Project -- UserDirectoryInterface
+ *
+ * Interface for the UserDirectory class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface UserDirectoryInterface {
+    void addUser(String username);
+    void setOnline(String username, boolean online);
+    long getVersion();
+    UserDirectory.Snapshot getSnapshot();
+    UserDirectory.Snapshot getRecentSnapshot();
+    UserDirectory.Snapshot getChangesSince(long since);
+}
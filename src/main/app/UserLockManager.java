@@ -0,0 +1,89 @@
+package src.main.app;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * UserLockManager
+ *
+ * Striped locks keyed by user ID, used for changes that touch two users at once,
+ * such as approving a friend request or blocking someone. Users are hashed onto a
+ * fixed set of stripes and a pair is always locked in stripe order, so two threads
+ * working on the same pair from opposite ends can never deadlock. Unrelated pairs
+ * usually land on different stripes and run in parallel, unlike a single global lock.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class UserLockManager implements UserLockManagerInterface {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private static final UserLockManager shared =
+            new UserLockManager(Runtime.getRuntime().availableProcessors() * 16);
+
+    public UserLockManager(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the lock manager used for relationship changes.
+     *
+     * @return The shared lock manager.
+     */
+    public static UserLockManager getShared() {
+        return shared;
+    }
+
+    private int stripeOf(User user) {
+        int h = user.getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Locks the stripes of two users, lowest stripe first. If both users share a
+     * stripe it is locked once. Every call must be matched by {@link #unlock(User, User)}.
+     *
+     * @param a One user.
+     * @param b The other user.
+     */
+    @Override
+    public void lock(User a, User b) {
+        int first = stripeOf(a);
+        int second = stripeOf(b);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    /**
+     * Releases the stripes taken by {@link #lock(User, User)}.
+     *
+     * @param a One user.
+     * @param b The other user.
+     */
+    @Override
+    public void unlock(User a, User b) {
+        int first = stripeOf(a);
+        int second = stripeOf(b);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return The stripe count.
+     */
+    @Override
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
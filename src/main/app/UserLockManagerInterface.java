@@ -0,0 +1,15 @@
+package src.main.app;
+
+/**
+ * Team Project -- UserLockManagerInterface
+ *
+ * Interface for the UserLockManager class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface UserLockManagerInterface {
+    void lock(User a, User b);
+    void unlock(User a, User b);
+    int getStripeCount();
+}
@@ -0,0 +1,166 @@
+package src.main.app;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UserMailbox
+ *
+ * Optional single-writer execution model. Each user owns a mailbox of tasks, and the
+ * tasks of one mailbox run one at a time, in the order they were posted, no matter
+ * which connection posted them. Mailboxes do not own threads: a mailbox with work is
+ * scheduled on a shared fork-join pool, so idle users cost nothing and throughput
+ * grows with the number of active users rather than the number of connections.
+ *
+ * Work for another user is posted to that user's mailbox with execute() instead of
+ * being done on the caller's thread. A mailbox runs at most a batch of tasks before
+ * yielding its worker, so one busy user cannot starve the others.
+ *
+ * Enabled with -Dchat.mailboxes=true or setEnabled(true); when disabled, call()
+ * simply runs the task on the calling thread.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class UserMailbox implements UserMailboxInterface {
+    private static final Logger log = Logger.get(UserMailbox.class);
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+    private final AtomicInteger pending;
+    private final ForkJoinPool pool;
+    private volatile Thread runner;
+
+    private static final int BATCH_SIZE = 64;
+    private static final ForkJoinPool sharedPool = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    private static final ConcurrentHashMap<Integer, UserMailbox> mailboxes = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = Boolean.getBoolean("chat.mailboxes");
+
+    public UserMailbox(ForkJoinPool pool) {
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.pending = new AtomicInteger();
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the mailbox of a user, creating it on first use.
+     *
+     * @param user The user.
+     * @return The user's mailbox.
+     */
+    public static UserMailbox of(User user) {
+        return mailboxes.computeIfAbsent(user.getId(), k -> new UserMailbox(sharedPool));
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Posts a task to this mailbox without waiting for it.
+     *
+     * @param task The task to run on this mailbox.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        if (pending.getAndIncrement() == 0) {
+            pool.execute(this::drain);
+        }
+    }
+
+    /**
+     * Posts a task to this mailbox.
+     *
+     * @param task The task to run on this mailbox.
+     * @return A future completed with the task's result.
+     */
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs a task on this mailbox and waits for its result. A task that is already
+     * running on this mailbox runs the nested task directly, since waiting on itself
+     * would never finish. With mailboxes disabled the task runs on the calling thread.
+     *
+     * @param task The task to run.
+     * @return The task's result.
+     */
+    @Override
+    public <T> T call(Callable<T> task) {
+        if (!enabled || runner == Thread.currentThread()) {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+        try {
+            return submit(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of tasks posted but not yet finished.
+     *
+     * @return The mailbox backlog.
+     */
+    @Override
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Runs queued tasks on a pool worker. Only one drain is scheduled at a time,
+     * because only the post that moves pending from 0 to 1 schedules one.
+     */
+    private void drain() {
+        int processed = 0;
+        while (true) {
+            runner = Thread.currentThread();
+            Runnable task = tasks.poll();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Mailbox task failed", t);
+            }
+            runner = null;
+            if (pending.decrementAndGet() == 0) {
+                return;
+            }
+            if (++processed >= BATCH_SIZE) {
+                pool.execute(this::drain);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package src.main.app;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Team Project -- UserMailboxInterface
+ *
+ * Interface for the UserMailbox class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface UserMailboxInterface {
+    void execute(Runnable task);
+    <T> CompletableFuture<T> submit(Callable<T> task);
+    <T> T call(Callable<T> task);
+    int getPendingCount();
+}
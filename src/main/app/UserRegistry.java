@@ -0,0 +1,140 @@
+package src.main.app;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UserRegistry
+ *
+ * Holds every registered user, indexed by normalized (lower-case) username, and hands
+ * out user IDs. Registration is a single putIfAbsent, so it costs the same no matter
+ * how many users already exist, and two clients racing for the same username cannot
+ * both win. Iteration walks a live, weakly consistent view, so callers never copy the
+ * whole user list just to loop over it.
+ *
+ * Every User object gets an ID when it is constructed, registered or not, so that
+ * messages can refer to their participants by ID.
+ *
+ * @version 12/08/2024
+ * @author Haiyan Xuan, Abhishek Bandaru
+ */
+public class UserRegistry implements UserRegistryInterface {
+    private final ConcurrentHashMap<String, User> byUsername;
+    private final ConcurrentHashMap<Integer, User> byId;
+    private final AtomicInteger nextId;
+
+    private static final UserRegistry shared = new UserRegistry();
+
+    public UserRegistry() {
+        this.byUsername = new ConcurrentHashMap<>();
+        this.byId = new ConcurrentHashMap<>();
+        this.nextId = new AtomicInteger(1);
+    }
+
+    /**
+     * Returns the registry used by the application.
+     *
+     * @return The shared registry.
+     */
+    public static UserRegistry getShared() {
+        return shared;
+    }
+
+    /**
+     * Normalizes a username for lookups. Usernames are unique regardless of case.
+     *
+     * @param username The username as typed.
+     * @return The lookup key.
+     */
+    public static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Allocates a fresh ID for a new user object.
+     *
+     * @param user The user being constructed.
+     * @return The new ID.
+     */
+    @Override
+    public int assignId(User user) {
+        int id = nextId.getAndIncrement();
+        byId.put(id, user);
+        return id;
+    }
+
+    /**
+     * Records the ID of a user loaded from disk and keeps the allocator ahead of it.
+     *
+     * @param user The loaded user.
+     */
+    @Override
+    public void restoreId(User user) {
+        nextId.accumulateAndGet(user.getId() + 1, Math::max);
+        byId.put(user.getId(), user);
+    }
+
+    /**
+     * Forgets a user object that was never registered, such as one created for a
+     * username that turned out to be taken.
+     *
+     * @param user The user to forget.
+     */
+    @Override
+    public void release(User user) {
+        byId.remove(user.getId(), user);
+    }
+
+    /**
+     * Registers a user under their username.
+     *
+     * @param user The user to register.
+     * @return true if the user was added, false if the username is already taken.
+     */
+    @Override
+    public boolean register(User user) {
+        return byUsername.putIfAbsent(normalize(user.getUsername()), user) == null;
+    }
+
+    /**
+     * Removes every registered user. Used before reloading the database from disk.
+     */
+    @Override
+    public void clear() {
+        byUsername.clear();
+    }
+
+    @Override
+    public User getByUsername(String username) {
+        return username == null ? null : byUsername.get(normalize(username));
+    }
+
+    @Override
+    public User getById(int id) {
+        return byId.get(id);
+    }
+
+    @Override
+    public boolean isUsernameAvailable(String username) {
+        return !byUsername.containsKey(normalize(username));
+    }
+
+    /**
+     * Returns a live, read-only view of the registered users. Iterating it never throws
+     * ConcurrentModificationException and may or may not reflect concurrent registrations.
+     *
+     * @return The registered users.
+     */
+    @Override
+    public Collection<User> getUsers() {
+        return Collections.unmodifiableCollection(byUsername.values());
+    }
+
+    @Override
+    public int size() {
+        return byUsername.size();
+    }
+}
@@ -0,0 +1,24 @@
+package src.main.app;
+
+import java.util.Collection;
+
+/**
+ * Team Project -- UserRegistryInterface
+ *
+ * Interface for the UserRegistry class.
+ *
+ * @version 12/08/2024
+ * @author Abhishek Bandaru
+ */
+public interface UserRegistryInterface {
+    int assignId(User user);
+    void restoreId(User user);
+    void release(User user);
+    boolean register(User user);
+    void clear();
+    User getByUsername(String username);
+    User getById(int id);
+    boolean isUsernameAvailable(String username);
+    Collection<User> getUsers();
+    int size();
+}
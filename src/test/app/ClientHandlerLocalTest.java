@@ -0,0 +1,257 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- ClientHandlerLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the ClientHandler class over real sockets, against a server
+ * started in this JVM on a free port, such as keying sessions and
+ * pushes by the stored username whatever casing the client typed.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class ClientHandlerLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /** One client connection that sends a request and waits for its reply. */
+    private static class Connection implements Closeable {
+        private final Socket socket;
+        private final PrintWriter out;
+        private final BufferedReader in;
+
+        Connection(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(5000);
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /** Sends a request and returns the first line that starts with one of the prefixes. */
+        String request(String line, String... replyPrefixes) throws IOException {
+            out.println(line);
+            return await(replyPrefixes);
+        }
+
+        /** Skips pushes until a line that starts with one of the prefixes. */
+        String await(String... prefixes) throws IOException {
+            String reply;
+            while ((reply = in.readLine()) != null) {
+                for (String prefix : prefixes) {
+                    if (reply.startsWith(prefix)) {
+                        return reply;
+                    }
+                }
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        private static final String PASSWORD = "handlerPassword1";
+
+        private static Server server;
+        private final List<Connection> connections = new ArrayList<>();
+
+        @BeforeClass
+        public static void startServer() throws IOException {
+            server = new Server(0);
+            server.start();
+        }
+
+        @AfterClass
+        public static void stopServer() {
+            server.stop();
+            UserRegistry.getShared().clear();
+        }
+
+        @Before
+        public void clearUsers() {
+            UserRegistry.getShared().clear();
+        }
+
+        @After
+        public void closeConnections() throws IOException {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            connections.clear();
+        }
+
+        private static User register(String username) {
+            User user = User.addUser("Handler " + username, username, PASSWORD, "Handler test user", "test.png");
+            assertNotNull("Could not register " + username, user);
+            return user;
+        }
+
+        private Connection connect() throws IOException {
+            Connection connection = new Connection(server.getPort());
+            connections.add(connection);
+            return connection;
+        }
+
+        // LOGIN_SUCCESS is sent before the session is added, so wait for the reply to the
+        // next command: by then the login has finished.
+        private static String login(Connection connection, String username) throws IOException {
+            String reply = connection.request("LOGIN," + username + "," + PASSWORD,
+                    "LOGIN_SUCCESS", "LOGIN_FAILURE", "ERROR");
+            connection.request("PING", "PONG");
+            return reply;
+        }
+
+        //Case A: A login typed in another casing holds the stored name's session until logout
+        @Test(timeout = 10000)
+        public void testLoginCasingSharesOneSession() throws IOException {
+            register("alice");
+
+            Connection upper = connect();
+            assertEquals("LOGIN_SUCCESS", login(upper, "ALICE"));
+            assertTrue(server.isUserLoggedIn("alice"));
+            assertFalse(server.isUserLoggedIn("ALICE"));
+
+            Connection lower = connect();
+            assertEquals("ERROR,User already logged in", login(lower, "alice"));
+
+            assertEquals("LOGOUT_SUCCESS", upper.request("LOGOUT", "LOGOUT_SUCCESS", "ERROR"));
+            assertFalse(server.isUserLoggedIn("alice"));
+            assertEquals("LOGIN_SUCCESS", login(lower, "alice"));
+        }
+
+        //Case B: A message to a recipient typed in another casing is pushed to their session
+        @Test(timeout = 10000)
+        public void testSendMessagePushesToStoredName() throws IOException {
+            User carol = register("carol");
+            User dave = register("dave");
+            carol.getFriendsDB().sendFriendRequest(dave);
+            dave.getFriendsDB().approveFriendRequest(carol);
+
+            Connection daveConnection = connect();
+            assertEquals("LOGIN_SUCCESS", login(daveConnection, "dave"));
+            Connection carolConnection = connect();
+            assertEquals("LOGIN_SUCCESS", login(carolConnection, "Carol"));
+
+            String reply = carolConnection.request("SEND_MESSAGE,DAVE,hello there", "SEND_MESSAGE_SUCCESS", "ERROR");
+            assertTrue(reply, reply.startsWith("SEND_MESSAGE_SUCCESS"));
+            String push = daveConnection.await("MESSAGE,");
+            assertTrue(push, push.startsWith("MESSAGE,carol,"));
+            assertTrue(push, push.endsWith(",hello there"));
+        }
+
+        //Case C: A friend request to a user who is offline is waiting in their inbox at login
+        @Test(timeout = 10000)
+        public void testFriendRequestStoredWhileOffline() throws IOException {
+            register("erin");
+            register("frank");
+
+            Connection frankConnection = connect();
+            assertEquals("LOGIN_SUCCESS", login(frankConnection, "frank"));
+            assertEquals("ADD_FRIEND_SUCCESS,erin",
+                    frankConnection.request("ADD_FRIEND,erin", "ADD_FRIEND_SUCCESS", "ERROR"));
+            // The push follows the reply; once the next command is answered it has been stored.
+            frankConnection.request("PING", "PONG");
+
+            Connection erinConnection = connect();
+            // The inbox is sent right after LOGIN_SUCCESS, so read on from the login reply.
+            assertEquals("LOGIN_SUCCESS", erinConnection.request("LOGIN,erin," + PASSWORD, "LOGIN_SUCCESS", "ERROR"));
+            String inbox = erinConnection.await("INBOX,");
+            assertTrue(inbox, inbox.contains("FRIEND_REQUEST,frank"));
+        }
+
+        //Case D: Text that could forge inbox events is rejected before it is stored
+        @Test(timeout = 10000)
+        public void testControlCharactersRejected() throws IOException {
+            User gina = register("gina");
+            User hank = register("hank");
+            gina.getFriendsDB().sendFriendRequest(hank);
+            hank.getFriendsDB().approveFriendRequest(gina);
+
+            Connection ginaConnection = connect();
+            assertEquals("LOGIN_SUCCESS", login(ginaConnection, "gina"));
+            int stored = OfflineInbox.getShared().size("hank");
+            String forged = "hi" + OfflineInbox.EVENT_SEPARATOR + "USER_BLOCKED,admin";
+            assertEquals("ERROR,Message cannot contain control characters",
+                    ginaConnection.request("SEND_MESSAGE,hank," + forged, "SEND_MESSAGE_SUCCESS", "ERROR"));
+            assertEquals(stored, OfflineInbox.getShared().size("hank"));
+
+            String reply = ginaConnection.request("SEND_MESSAGE,hank,hi\tthere", "SEND_MESSAGE_SUCCESS", "ERROR");
+            assertTrue(reply, reply.startsWith("SEND_MESSAGE_SUCCESS,"));
+            long id = Long.parseLong(reply.substring("SEND_MESSAGE_SUCCESS,".length()));
+            assertEquals("ERROR,Message cannot contain control characters",
+                    ginaConnection.request("EDIT_MESSAGE," + id + "," + forged, "EDIT_MESSAGE_SUCCESS", "ERROR"));
+        }
+
+        //Case E: The user list pushed on login carries a version that VIEW_USERS accepts
+        @Test(timeout = 10000)
+        public void testLoginUserListIsVersioned() throws IOException {
+            register("ivan");
+            register("judy");
+
+            Connection ivanConnection = connect();
+            assertEquals("LOGIN_SUCCESS", ivanConnection.request("LOGIN,ivan," + PASSWORD, "LOGIN_SUCCESS", "ERROR"));
+            String full = ivanConnection.await("USER_LIST_FULL,");
+            String[] parts = full.split(",", 3);
+            long version = Long.parseLong(parts[1]);
+            // A delta follows when the cached list is older than the directory; it comes before PONG.
+            String next = ivanConnection.request("PING", "USER_LIST_DELTA,", "PONG");
+            if (next.startsWith("USER_LIST_DELTA,")) {
+                version = Long.parseLong(next.split(",", 4)[2]);
+                ivanConnection.await("PONG");
+            }
+
+            String reply = ivanConnection.request("VIEW_USERS," + version, "USER_LIST_", "ERROR");
+            assertEquals("USER_LIST_NOT_MODIFIED," + version, reply);
+
+            Connection judyConnection = connect();
+            assertEquals("LOGIN_SUCCESS", login(judyConnection, "judy"));
+            reply = ivanConnection.request("VIEW_USERS," + version, "USER_LIST_", "ERROR");
+            assertTrue(reply, reply.startsWith("USER_LIST_DELTA," + version + ","));
+            assertTrue(reply, reply.contains("online:judy"));
+        }
+    }
+}
@@ -3,9 +3,13 @@ package src.test.app;
 import org.junit.jupiter.api.Test;
 import src.main.app.Client;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -90,4 +94,29 @@ class ClientLocalTest {
 
         serverSocket.close();
     }
+
+    @Test
+    void testBurstAckedBeforeNextLine() throws IOException {
+        // A free port, so this can run while another test still holds 2424.
+        ServerSocket serverSocket = new ServerSocket(0);
+        Client client = new Client("localhost", serverSocket.getLocalPort(), message -> {});
+        Socket server = serverSocket.accept();
+        server.setSoTimeout(5000);
+        BufferedReader fromClient = new BufferedReader(
+                new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("ENABLE_ACKS", fromClient.readLine());
+
+        // Written at once, so the PING is already buffered when the last push is handled.
+        OutputStream toClient = server.getOutputStream();
+        toClient.write("DELIVER,1,MESSAGE,a,1,x\nDELIVER,2,MESSAGE,a,2,y\nPING\n".getBytes(StandardCharsets.UTF_8));
+        toClient.flush();
+        new Thread(client).start();
+
+        assertEquals("ACK,2", fromClient.readLine(), "The burst should be acked before the PING is answered");
+        assertEquals("PONG", fromClient.readLine());
+
+        client.close();
+        server.close();
+        serverSocket.close();
+    }
 }
@@ -0,0 +1,163 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- ConnectionStatsLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the ConnectionStats class, such as counting bytes on the socket
+ * streams, tracking the outbound queue and sorting connections for
+ * the CONNECTIONS command.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class ConnectionStatsLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private long total(String name) {
+            return Metrics.getShared().counter(name).sum();
+        }
+
+        //Case A: Test if bytes read and written through the socket streams are counted
+        @Test(timeout = 1000)
+        public void verifyByteCounting() throws IOException {
+            ConnectionStats stats = new ConnectionStats("10.0.0.1");
+            long totalIn = total("net.bytes_in");
+            long totalOut = total("net.bytes_out");
+
+            InputStream in = stats.countIn(new ByteArrayInputStream("LOGIN,alice,pw\n".getBytes(StandardCharsets.UTF_8)));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+            assertEquals("LOGIN,alice,pw", reader.readLine());
+            assertEquals(15, stats.getBytesIn());
+
+            ByteArrayOutputStream wire = new ByteArrayOutputStream();
+            PrintWriter writer = new PrintWriter(stats.countOut(wire), true);
+            writer.println("LOGIN_SUCCESS");
+            writer.println("PONG");
+            assertEquals(wire.size(), stats.getBytesOut());
+            assertEquals(14 + 5, stats.getBytesOut());
+
+            assertEquals(15, total("net.bytes_in") - totalIn);
+            assertEquals(19, total("net.bytes_out") - totalOut);
+        }
+
+        //Case B: Test if the outbound queue depth and the oldest unsent frame are tracked
+        @Test(timeout = 1000)
+        public void verifyOutboundQueue() throws InterruptedException {
+            ConnectionStats stats = new ConnectionStats("10.0.0.2");
+            assertEquals(0, stats.getQueueDepth());
+            assertEquals(0, stats.getOldestUnsentMillis());
+
+            long first = stats.enqueued();
+            stats.enqueued();
+            assertEquals(2, stats.getQueueDepth());
+            stats.writing(first);
+            Thread.sleep(30);
+            assertTrue(stats.getOldestUnsentMillis() >= 30);
+
+            stats.written();
+            assertEquals(1, stats.getQueueDepth());
+            assertEquals(0, stats.getOldestUnsentMillis());
+            assertEquals(1, stats.getFramesOut());
+        }
+
+        //Case C: Test if CONNECTIONS sorts open connections by a column, largest first
+        @Test(timeout = 1000)
+        public void verifySortedListing() {
+            ConnectionStats quiet = new ConnectionStats("10.0.0.3");
+            ConnectionStats busy = new ConnectionStats("10.0.0.4");
+            busy.setUser("busy");
+            for (int i = 0; i < 5; i++) {
+                busy.frameIn();
+            }
+            quiet.frameIn();
+            quiet.register();
+            busy.register();
+            try {
+                List<ConnectionStats> top = ConnectionStats.top("frames_in", 10);
+                assertTrue(top.indexOf(busy) >= 0 && top.indexOf(busy) < top.indexOf(quiet));
+                assertTrue(busy.getCommandRate() > quiet.getCommandRate());
+                assertTrue(busy.toString(), busy.toString().startsWith("user=busy addr=10.0.0.4 "));
+                assertTrue(busy.toString(), busy.toString().contains(" frames_in=5 "));
+
+                assertEquals(1, ConnectionStats.top("frames_in", 1).size());
+                assertNull(ConnectionStats.top("no_such_column", 10));
+            } finally {
+                quiet.unregister();
+                busy.unregister();
+            }
+            assertFalse(ConnectionStats.top("frames_in", 10).contains(busy));
+        }
+
+        //Case D: Test if the aggregate queue gauges reach the metrics report
+        @Test(timeout = 1000)
+        public void verifyMetricsGauges() {
+            ConnectionStats stats = new ConnectionStats("10.0.0.5");
+            stats.register();
+            try {
+                stats.writing(stats.enqueued() - 2_000_000_000L);
+                String report = Metrics.getShared().report();
+                assertTrue(report, report.contains("connections.queued=1"));
+                assertTrue(report, report.matches(".*connections\\.oldest_unsent_ms=(19|20)\\d\\d.*"));
+                stats.written();
+            } finally {
+                stats.unregister();
+            }
+        }
+    }
+}
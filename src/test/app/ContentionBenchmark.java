@@ -0,0 +1,328 @@
+package src.test.app;
+
+import src.main.app.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Team Project -- ContentionBenchmark
+ *
+ * Runs five workloads on shared server state from 1, 2, 4, ... threads and prints a
+ * scaling curve for each:
+ * - online: log in, push to and log out users through Server (userClientMap, the
+ *   offline inbox locks and the UserDirectory);
+ * - registry: register new users with User.addUser and look them up;
+ * - conversation: two users exchanging messages in one hot conversation;
+ * - append: the same A to B and B to A appends on the Conversation alone, each looked
+ *   up again by ID, with no lock on the path;
+ * - celebrity: fans befriending one user, who approves them all, while isFriend is read.
+ *
+ * Blocked time (waiting to enter a synchronized block) and waited time (parked, which
+ * includes java.util.concurrent locks) come from ThreadMXBean contention monitoring,
+ * summed over the worker threads. After every run the state is checked for lost or
+ * duplicated entries.
+ * Usage: java src.test.app.ContentionBenchmark [opsPerThread] [maxThreads]
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+public class ContentionBenchmark {
+    private interface Workload {
+        void setUp(int threads, int perThread) throws IOException;
+        void run(int thread, int perThread);
+        String verify(int threads, int perThread);
+    }
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        if (threadBean.isThreadContentionMonitoringSupported()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        }
+        Logger.setLevel("", Logger.Level.WARN);
+        // The online workload's handlers have no connection; don't report that each time.
+        Logger.setLevel(ClientHandler.class.getName(), Logger.Level.OFF);
+
+        Server server = new Server(0);
+        System.out.println("workload, threads, ops/s, speedup, blocked_ms, waited_ms, corrupt");
+        scale("online", online(server), perThread, maxThreads);
+        scale("registry", registry(), perThread, maxThreads);
+        scale("conversation", conversation(), perThread, maxThreads);
+        scale("append", append(), perThread, maxThreads);
+        // Every approval saves the user database, so this one gets fewer operations.
+        scale("celebrity", celebrity(), Math.max(1, perThread / 20), maxThreads);
+        server.stop();
+    }
+
+    private static void scale(String name, Workload workload, int perThread, int maxThreads) throws Exception {
+        // One untimed single-threaded round first, so the baseline is not measured cold.
+        runOnce(name, workload, 1, perThread);
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long[] result = runOnce(name, workload, threads, perThread);
+            double opsPerSecond = (double) threads * perThread / (result[0] / 1e9);
+            if (threads == 1) {
+                baseline = opsPerSecond;
+            }
+            String problem = workload.verify(threads, perThread);
+            System.out.printf("%s, %d, %.0f, %.2f, %d, %d, %s%n", name, threads, opsPerSecond,
+                    opsPerSecond / baseline, result[1], result[2],
+                    problem == null ? "false" : "true (" + problem + ")");
+        }
+    }
+
+    /**
+     * Runs a workload once on the given number of threads.
+     *
+     * @return The elapsed nanoseconds, and the blocked and waited milliseconds of all workers.
+     */
+    private static long[] runOnce(String name, Workload workload, int threads, int perThread) throws Exception {
+        workload.setUp(threads, perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder blockedMillis = new LongAdder();
+        LongAdder waitedMillis = new LongAdder();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadInfo before = threadBean.getThreadInfo(Thread.currentThread().getId());
+                    workload.run(thread, perThread);
+                    ThreadInfo after = threadBean.getThreadInfo(Thread.currentThread().getId());
+                    if (before != null && after != null && after.getBlockedTime() >= 0) {
+                        blockedMillis.add(after.getBlockedTime() - before.getBlockedTime());
+                        waitedMillis.add(after.getWaitedTime() - before.getWaitedTime());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, name + "-" + t).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return new long[] {System.nanoTime() - begin, blockedMillis.sum(), waitedMillis.sum()};
+    }
+
+    private static User newUser(String username) {
+        return new User("Bench " + username, username, "pw", "profile", "pic");
+    }
+
+    private static void befriend(User a, User b) {
+        a.getFriendsDB().sendFriendRequest(b);
+        b.getFriendsDB().approveFriendRequest(a);
+    }
+
+    /** Each thread logs its own users in, pushes to them once and logs them out again. */
+    private static Workload online(Server server) {
+        return new Workload() {
+            private final AtomicLong delivered = new AtomicLong();
+            private ClientHandler handler;
+            private int run;
+
+            public void setUp(int threads, int perThread) {
+                delivered.set(0);
+                run++;
+                handler = new ClientHandler(new Socket(), server) {
+                    @Override
+                    public void sendMessage(String message) {
+                        delivered.incrementAndGet();
+                    }
+                };
+            }
+
+            public void run(int thread, int perThread) {
+                for (int i = 0; i < perThread; i++) {
+                    String username = "online" + run + "_" + thread + "_" + (i % 64);
+                    server.addUserClient(username, handler);
+                    server.sendToUser(username, "PUSH," + i, false);
+                    server.removeUserClient(username);
+                }
+            }
+
+            public String verify(int threads, int perThread) {
+                for (int t = 0; t < threads; t++) {
+                    for (int i = 0; i < Math.min(64, perThread); i++) {
+                        if (server.isUserLoggedIn("online" + run + "_" + t + "_" + i)) {
+                            return "user still online";
+                        }
+                    }
+                }
+                long expected = (long) threads * perThread;
+                return delivered.get() == expected ? null : delivered.get() + " of " + expected + " pushes delivered";
+            }
+        };
+    }
+
+    /** Each thread registers new users and looks up the ones registered before it. */
+    private static Workload registry() {
+        return new Workload() {
+            private int run;
+
+            public void setUp(int threads, int perThread) {
+                run++;
+                UserRegistry.getShared().clear();
+            }
+
+            public void run(int thread, int perThread) {
+                for (int i = 0; i < perThread; i++) {
+                    User.addUser("Bench", "reg" + run + "_" + thread + "_" + i, "pw", "profile", "pic");
+                    User.getUserByUsername("reg" + run + "_" + thread + "_" + (i / 2));
+                }
+            }
+
+            public String verify(int threads, int perThread) {
+                Set<Integer> ids = new HashSet<>();
+                for (int t = 0; t < threads; t++) {
+                    for (int i = 0; i < perThread; i++) {
+                        User user = User.getUserByUsername("reg" + run + "_" + t + "_" + i);
+                        if (user == null) {
+                            return "user missing";
+                        }
+                        if (!ids.add(user.getId())) {
+                            return "duplicate id " + user.getId();
+                        }
+                    }
+                }
+                int expected = threads * perThread;
+                int size = UserRegistry.getShared().size();
+                UserRegistry.getShared().clear();
+                return size == expected ? null : size + " of " + expected + " users registered";
+            }
+        };
+    }
+
+    /** Two users exchange messages in a single conversation from every thread. */
+    private static Workload conversation() {
+        return new Workload() {
+            private User alice;
+            private User bob;
+
+            public void setUp(int threads, int perThread) {
+                alice = newUser("hotAlice" + System.nanoTime());
+                bob = newUser("hotBob" + System.nanoTime());
+                befriend(alice, bob);
+            }
+
+            public void run(int thread, int perThread) {
+                User sender = thread % 2 == 0 ? alice : bob;
+                User recipient = sender == alice ? bob : alice;
+                for (int i = 0; i < perThread; i++) {
+                    sender.getMessagingDB().addMessage("m" + i, recipient);
+                }
+            }
+
+            public String verify(int threads, int perThread) {
+                Conversation conversation = Conversation.find(alice, bob);
+                List<Message> messages = conversation == null ? new ArrayList<>() : conversation.getMessages();
+                Set<Long> ids = new HashSet<>();
+                for (Message msg : messages) {
+                    if (msg == null || !ids.add(msg.getId())) {
+                        return "hole or duplicate";
+                    }
+                }
+                long expected = (long) threads * perThread;
+                return messages.size() == expected ? null : messages.size() + " of " + expected + " messages";
+            }
+        };
+    }
+
+    /** Appends in both directions of one conversation and finds each message by its ID. */
+    private static Workload append() {
+        return new Workload() {
+            private final LongAdder missed = new LongAdder();
+            private User alice;
+            private User bob;
+            private Conversation conversation;
+
+            public void setUp(int threads, int perThread) {
+                alice = newUser("appendAlice" + System.nanoTime());
+                bob = newUser("appendBob" + System.nanoTime());
+                conversation = Conversation.between(alice, bob);
+                missed.reset();
+            }
+
+            public void run(int thread, int perThread) {
+                User sender = thread % 2 == 0 ? alice : bob;
+                User recipient = sender == alice ? bob : alice;
+                for (int i = 0; i < perThread; i++) {
+                    Message msg = new Message(sender, recipient, "m" + i);
+                    conversation.append(msg);
+                    if (conversation.getMessage(msg.getId()) != msg) {
+                        missed.increment();
+                    }
+                }
+            }
+
+            public String verify(int threads, int perThread) {
+                if (missed.sum() > 0) {
+                    return missed.sum() + " messages not found by ID";
+                }
+                Set<Long> ids = new HashSet<>();
+                for (Message msg : conversation.getMessages()) {
+                    if (msg == null || !ids.add(msg.getId())) {
+                        return "hole or duplicate";
+                    }
+                }
+                long expected = (long) threads * perThread;
+                return ids.size() == expected ? null : ids.size() + " of " + expected + " messages";
+            }
+        };
+    }
+
+    /** Fans befriend one celebrity, who approves every request, while each checks isFriend. */
+    private static Workload celebrity() {
+        return new Workload() {
+            private User celebrity;
+            private User[][] fans;
+
+            public void setUp(int threads, int perThread) {
+                celebrity = newUser("celebrity" + System.nanoTime());
+                fans = new User[threads][perThread];
+                for (int t = 0; t < threads; t++) {
+                    for (int i = 0; i < perThread; i++) {
+                        fans[t][i] = newUser("fan" + System.nanoTime());
+                    }
+                }
+            }
+
+            public void run(int thread, int perThread) {
+                for (User fan : fans[thread]) {
+                    befriend(fan, celebrity);
+                    celebrity.getFriendsDB().isFriend(fan);
+                }
+            }
+
+            public String verify(int threads, int perThread) {
+                List<User> friends = celebrity.getFriendsDB().getFriends();
+                for (User[] row : fans) {
+                    for (User fan : row) {
+                        if (!fan.getFriendsDB().isFriend(celebrity) || !friends.contains(fan)) {
+                            return "friendship not symmetric";
+                        }
+                    }
+                }
+                long expected = (long) threads * perThread;
+                return friends.size() == expected ? null : friends.size() + " of " + expected + " friends";
+            }
+        };
+    }
+}
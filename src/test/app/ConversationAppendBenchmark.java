@@ -0,0 +1,112 @@
+package src.test.app;
+
+import src.main.app.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Team Project -- ConversationAppendBenchmark
+ *
+ * Hammers one conversation from 1, 2, 4, ... writer threads while a reader keeps
+ * taking snapshots, and compares the lock-free ConversationLog with a
+ * synchronized ArrayList (the previous design). After every run the log is checked
+ * for lost or duplicated messages and for holes seen by the reader.
+ * Usage: java src.test.app.ConversationAppendBenchmark [messagesPerThread] [maxThreads]
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+public class ConversationAppendBenchmark {
+    private interface Log {
+        void append(Message msg);
+        List<Message> snapshot();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        PrintStream originalOutput = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        User alice = new User("Alice", "alice_bench", "pw", "profile", "pic");
+        User bob = new User("Bob", "bob_bench", "pw", "profile", "pic");
+        System.setOut(originalOutput);
+
+        System.out.println("threads, impl, appends/s, snapshots, corrupt");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ConversationLog lockFree = new ConversationLog();
+            run(threads, perThread, alice, bob, "lock-free", new Log() {
+                public void append(Message msg) { lockFree.append(msg); }
+                public List<Message> snapshot() { return lockFree.range(0, lockFree.size()); }
+            });
+            List<Message> list = new ArrayList<>();
+            run(threads, perThread, alice, bob, "synchronized", new Log() {
+                public void append(Message msg) { synchronized (list) { list.add(msg); } }
+                public List<Message> snapshot() { synchronized (list) { return new ArrayList<>(list); } }
+            });
+        }
+    }
+
+    private static void run(int threads, int perThread, User alice, User bob, String name, Log log)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshots = new AtomicLong();
+        AtomicLong holes = new AtomicLong();
+
+        for (int t = 0; t < threads; t++) {
+            User sender = t % 2 == 0 ? alice : bob;
+            User recipient = sender == alice ? bob : alice;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        log.append(new Message(sender, recipient, "m"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                for (Message msg : log.snapshot()) {
+                    if (msg == null) {
+                        holes.incrementAndGet();
+                    }
+                }
+                snapshots.incrementAndGet();
+            }
+        });
+        reader.start();
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        writing.set(false);
+        reader.join();
+
+        List<Message> all = log.snapshot();
+        Set<Long> ids = new HashSet<>();
+        for (Message msg : all) {
+            if (msg == null || !ids.add(msg.getId())) {
+                holes.incrementAndGet();
+            }
+        }
+        long expected = (long) threads * perThread;
+        boolean corrupt = all.size() != expected || holes.get() > 0;
+        System.out.printf("%d, %s, %.0f, %d, %s%n", threads, name, expected / (elapsed / 1e9), snapshots.get(), corrupt);
+    }
+}
@@ -0,0 +1,167 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- DeliveryTrackerLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the DeliveryTracker class, such as numbering pushes, trimming the
+ * window on cumulative acks and resending what is not acked in time.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class DeliveryTrackerLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private static DeliveryTracker tracker(long ackTimeoutMillis, List<String> resent) {
+            TimingWheel wheel = new TimingWheel(10, 64, System.currentTimeMillis());
+            wheel.start();
+            return new DeliveryTracker(wheel, ackTimeoutMillis, 4, (username, frames) -> resent.addAll(frames));
+        }
+
+        //Case A: Test if each recipient gets its own sequence numbers
+        @Test(timeout = 1000)
+        public void verifyPerRecipientSequence() {
+            DeliveryTracker tracker = tracker(60_000, new ArrayList<>());
+            assertEquals("DELIVER,1,MESSAGE,alice,5,hi", tracker.track("bob", "MESSAGE,alice,5,hi"));
+            assertEquals("DELIVER,2,FRIEND_REQUEST,carol", tracker.track("bob", "FRIEND_REQUEST,carol"));
+            assertEquals("DELIVER,1,USER_BLOCKED,bob", tracker.track("dave", "USER_BLOCKED,bob"));
+            assertEquals(2, tracker.getUnackedCount("bob"));
+        }
+
+        //Case B: Test if a cumulative ack trims everything up to its number, and only that
+        @Test(timeout = 1000)
+        public void verifyCumulativeAck() {
+            DeliveryTracker tracker = tracker(60_000, new ArrayList<>());
+            for (int i = 0; i < 3; i++) {
+                tracker.track("bob", "E" + i);
+            }
+            assertEquals(2, tracker.ack("bob", 2));
+            assertEquals(2, tracker.getAckedThrough("bob"));
+            assertEquals(List.of("DELIVER,3,E2"), tracker.unacked("bob"));
+            assertEquals(0, tracker.ack("bob", 2));
+            assertEquals(1, tracker.ack("bob", 99));
+            assertEquals(3, tracker.getAckedThrough("bob"));
+            assertEquals(0, tracker.getUnackedCount("bob"));
+        }
+
+        //Case C: Test if pushes not acked in time are resent, oldest first, until acked
+        @Test(timeout = 5000)
+        public void verifyTimeoutRedelivery() throws InterruptedException {
+            List<String> resent = new CopyOnWriteArrayList<>();
+            DeliveryTracker tracker = tracker(100, resent);
+            tracker.track("bob", "E0");
+            tracker.track("bob", "E1");
+            while (resent.size() < 2) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of("DELIVER,1,E0", "DELIVER,2,E1"), resent.subList(0, 2));
+
+            tracker.ack("bob", 2);
+            Thread.sleep(300);
+            int afterAck = resent.size();
+            Thread.sleep(300);
+            assertEquals(afterAck, resent.size());
+        }
+
+        //Case D: Test if a client that stops acking is reported once its window is over the limit
+        @Test(timeout = 1000)
+        public void verifyWindowLimit() {
+            DeliveryTracker tracker = tracker(60_000, new ArrayList<>());
+            for (int i = 0; i < 4; i++) {
+                tracker.track("bob", "E" + i);
+            }
+            assertFalse(tracker.isOverLimit("bob"));
+            tracker.track("bob", "E4");
+            assertTrue(tracker.isOverLimit("bob"));
+            tracker.ack("bob", 5);
+            assertFalse(tracker.isOverLimit("bob"));
+        }
+
+        //Case E: Test if releasing a window hands back the unacked pushes without their numbers
+        @Test(timeout = 1000)
+        public void verifyRelease() {
+            DeliveryTracker tracker = tracker(60_000, new ArrayList<>());
+            tracker.track("bob", "MESSAGE,alice,1,a,b");
+            tracker.track("bob", "E1");
+            tracker.ack("bob", 1);
+            assertEquals(List.of("E1"), tracker.release("bob"));
+            assertEquals(0, tracker.getUnackedCount("bob"));
+            assertEquals("DELIVER,1,E2", tracker.track("bob", "E2"));
+        }
+
+        //Case F: Test if resends are handed to the executor instead of running on the wheel
+        @Test(timeout = 5000)
+        public void verifyRedeliveryOffWheel() throws InterruptedException {
+            List<String> threads = new CopyOnWriteArrayList<>();
+            List<Runnable> handedOver = new CopyOnWriteArrayList<>();
+            TimingWheel wheel = new TimingWheel(10, 64, System.currentTimeMillis());
+            wheel.start();
+            DeliveryTracker tracker = new DeliveryTracker(wheel, 50, 4,
+                    (username, frames) -> threads.add(Thread.currentThread().getName()), handedOver::add);
+            tracker.track("bob", "E0");
+            while (handedOver.isEmpty()) {
+                Thread.sleep(10);
+            }
+            assertTrue(threads.isEmpty());
+            handedOver.get(0).run();
+            assertEquals(List.of(Thread.currentThread().getName()), threads);
+        }
+    }
+}
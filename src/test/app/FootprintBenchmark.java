@@ -0,0 +1,223 @@
+package src.test.app;
+
+import src.main.app.*;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.ObjectName;
+
+/**
+ * Team Project -- FootprintBenchmark
+ *
+ * Loads a synthetic dataset and measures the heap it retains per user, per friend edge
+ * and per message, plus the size of userDatabase.ser, then prints how many users of
+ * that shape fit in common heap sizes.
+ *
+ * Each phase is measured as the change in the live heap, taken from a class histogram
+ * (the same one jmap -histo:live prints, so it follows a full GC). The classes that grew
+ * the most are listed, so an optimization can be checked against the type it targets.
+ * The totals include everything the server keeps for the data: the UserRegistry and
+ * UserDirectory entries for a user, and the conversation, ID-to-position table and
+ * search index entries for a message. Hash tables grow in steps, so the per-unit numbers
+ * include some unused table capacity.
+ *
+ * Approving a friend request saves the user database, so users are registered only
+ * after the friend graph and messages are built, and each of those saves writes an
+ * empty list. The database is saved once more at the end, to userDatabase.ser in the
+ * working directory; run it from a scratch directory.
+ * Usage: java src.test.app.FootprintBenchmark [users] [friendsPerUser] [messagesPerUser]
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+public class FootprintBenchmark {
+    private static final Pattern HISTOGRAM_ROW = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+    private static final long[] HEAP_SIZES_GB = {1, 2, 4, 8, 16, 32};
+    private static final double LIVE_FRACTION = 0.5;
+    private static final int TOP_CLASSES = 4;
+    private static final String[] WORDS = buildWords(500);
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int friendsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int messagesPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        Logger.setLevel("", Logger.Level.WARN);
+
+        // Run the whole path once on a few users, so classes, static tables and thread
+        // locals are in place before the baseline is taken.
+        load("warmup", 50, 4, 4, new Random(1), null);
+        UserRegistry.getShared().clear();
+
+        List<String> rows = new ArrayList<>();
+        long[] perUnit = load("user", users, friendsPerUser, messagesPerUser, new Random(42), rows);
+
+        User.saveUsersToFile();
+        long fileSize = new File("userDatabase.ser").length();
+        double filePerUser = (double) fileSize / users;
+
+        System.out.println("phase, units, live_bytes, bytes_per_unit, top classes (bytes)");
+        for (String row : rows) {
+            System.out.println(row);
+        }
+        System.out.printf("userDatabase.ser, %d, %d, %.1f, friend lists and messages are not saved in it%n",
+                users, fileSize, filePerUser);
+
+        long edges = (long) users * (friendsPerUser / 2);
+        double perUser = perUnit[0] + (double) edges / users * perUnit[1] + (double) messagesPerUser * perUnit[2];
+        System.out.println();
+        System.out.printf("Capacity for users with %d friends and %d sent messages each (%.0f bytes per user),%n",
+                friendsPerUser / 2 * 2, messagesPerUser, perUser);
+        System.out.printf("keeping the live set under %.0f%% of the heap:%n", LIVE_FRACTION * 100);
+        System.out.println("heap_gb, max_users, userDatabase.ser_mb");
+        for (long gb : HEAP_SIZES_GB) {
+            long maxUsers = (long) (gb * (1L << 30) * LIVE_FRACTION / perUser);
+            System.out.printf("%d, %d, %.1f%n", gb, maxUsers, maxUsers * filePerUser / (1 << 20));
+        }
+    }
+
+    /**
+     * Builds users, a friend graph in which user i befriends the next friendsPerUser / 2
+     * users, and messages from every user to its friends, measuring each phase.
+     *
+     * @return The live bytes per user (objects and registration), per edge and per message.
+     */
+    private static long[] load(String prefix, int users, int friendsPerUser, int messagesPerUser,
+                               Random random, List<String> rows) throws Exception {
+        Map<String, long[]> before = histogram();
+        List<User> population = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            population.add(new User("Synthetic " + prefix + i, prefix + i, "password" + i,
+                    "Email: " + prefix + i + "@example.com, Bio: " + sentence(random, 6), "default_pic.png"));
+        }
+        Map<String, long[]> afterUsers = histogram();
+
+        int half = Math.min(friendsPerUser / 2, users - 1);
+        long edges = 0;
+        for (int i = 0; i < users; i++) {
+            User user = population.get(i);
+            for (int d = 1; d <= half; d++) {
+                User friend = population.get((i + d) % users);
+                user.getFriendsDB().sendFriendRequest(friend);
+                friend.getFriendsDB().approveFriendRequest(user);
+                if (user.getFriendsDB().isFriend(friend)) {
+                    edges++;
+                }
+            }
+        }
+        Map<String, long[]> afterEdges = histogram();
+
+        long messages = 0;
+        for (int i = 0; half > 0 && i < users; i++) {
+            User user = population.get(i);
+            for (int m = 0; m < messagesPerUser; m++) {
+                User friend = population.get((i + 1 + m % half) % users);
+                if (user.getMessagingDB().addMessage(sentence(random, 3 + random.nextInt(10)), friend)) {
+                    messages++;
+                }
+            }
+        }
+        MessageSearchIndex.getShared().flush();
+        Map<String, long[]> afterMessages = histogram();
+
+        for (User user : population) {
+            UserRegistry.getShared().register(user);
+            UserDirectory.getShared().addUser(user.getUsername());
+        }
+        Map<String, long[]> afterRegistration = histogram();
+
+        long userBytes = total(afterUsers) - total(before);
+        long registrationBytes = total(afterRegistration) - total(afterMessages);
+        long edgeBytes = total(afterEdges) - total(afterUsers);
+        long messageBytes = total(afterMessages) - total(afterEdges);
+        if (rows != null) {
+            rows.add(row("user objects", users, before, afterUsers));
+            rows.add(row("user registration", users, afterMessages, afterRegistration));
+            rows.add(row("friend edge", edges, afterUsers, afterEdges));
+            rows.add(row("message", messages, afterEdges, afterMessages));
+        }
+        return new long[] {
+                (userBytes + registrationBytes) / Math.max(1, users),
+                edgeBytes / Math.max(1, edges),
+                messageBytes / Math.max(1, messages)};
+    }
+
+    private static String row(String phase, long units, Map<String, long[]> before, Map<String, long[]> after) {
+        long bytes = total(after) - total(before);
+        Map<String, Long> growth = new HashMap<>();
+        for (Map.Entry<String, long[]> e : after.entrySet()) {
+            long[] old = before.get(e.getKey());
+            long grew = e.getValue()[1] - (old == null ? 0 : old[1]);
+            if (grew > 0 && !e.getKey().equals("Total")) {
+                growth.put(e.getKey(), grew);
+            }
+        }
+        StringBuilder top = new StringBuilder();
+        growth.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_CLASSES)
+                .forEach(e -> top.append(top.length() > 0 ? " " : "")
+                        .append(e.getKey()).append('=').append(e.getValue()));
+        return String.format("%s, %d, %d, %.1f, %s", phase, units, bytes, (double) bytes / Math.max(1, units), top);
+    }
+
+    private static long total(Map<String, long[]> histogram) {
+        return histogram.get("Total")[1];
+    }
+
+    /**
+     * Takes a class histogram of the live heap through the DiagnosticCommand MBean.
+     *
+     * @return Instances and bytes per class name, plus a "Total" entry.
+     */
+    private static Map<String, long[]> histogram() throws Exception {
+        String text = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[] {new String[0]}, new String[] {String[].class.getName()});
+        Map<String, long[]> histogram = new HashMap<>();
+        long instances = 0;
+        long bytes = 0;
+        for (String line : text.split("\n")) {
+            Matcher m = HISTOGRAM_ROW.matcher(line);
+            if (m.find()) {
+                long[] row = {Long.parseLong(m.group(1)), Long.parseLong(m.group(2))};
+                histogram.merge(m.group(3), row, (a, b) -> new long[] {a[0] + b[0], a[1] + b[1]});
+                instances += row[0];
+                bytes += row[1];
+            }
+        }
+        histogram.put("Total", new long[] {instances, bytes});
+        return histogram;
+    }
+
+    private static String[] buildWords(int count) {
+        Random random = new Random(7);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    /** Words are drawn with a skew toward the front of the list, as in real text. */
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            double u = random.nextDouble();
+            text.append(i > 0 ? " " : "").append(WORDS[(int) (u * u * WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -183,5 +183,64 @@ public class FriendsDBLocalTest {
 
             assertTrue(user1.getFriendsDB().getBlockedUsers().contains(user2));
         }
+
+        //Case J: Test if approving a request makes both users friends with each other
+        @Test(timeout = 1000)
+        public void verifyApproveFriendRequestBothSides() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+
+            assertTrue(user2.getFriendsDB().isFriend(user1));
+            assertFalse(user2.getFriendsDB().hasPendingRequest(user1));
+        }
+
+        //Case K: Test if concurrent approve/remove/block between the same users stays symmetric
+        @Test(timeout = 10000)
+        public void verifyConcurrentRelationshipChangesSymmetric() throws InterruptedException {
+            User[] users = new User[8];
+            for (int i = 0; i < users.length; i++) {
+                users[i] = new User("A" + i, "B" + i, "C", "D", "E");
+            }
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int seed = t;
+                threads[t] = new Thread(() -> {
+                    java.util.Random random = new java.util.Random(seed);
+                    for (int i = 0; i < 300; i++) {
+                        User a = users[random.nextInt(users.length)];
+                        User b = users[random.nextInt(users.length)];
+                        if (a == b) {
+                            continue;
+                        }
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                a.getFriendsDB().sendFriendRequest(b);
+                                break;
+                            case 1:
+                                b.getFriendsDB().approveFriendRequest(a);
+                                break;
+                            case 2:
+                                a.getFriendsDB().removeFriend(b);
+                                break;
+                            default:
+                                b.getFriendsDB().removeFriend(a);
+                                break;
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (User a : users) {
+                for (User b : users) {
+                    assertEquals(a.getFriendsDB().isFriend(b), b.getFriendsDB().isFriend(a));
+                }
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,376 @@
+package src.test.app;
+
+import src.main.app.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Team Project -- LoadGenerator
+ *
+ * Headless load test for the server. Connects one Client per simulated user,
+ * registers the accounts, makes every user friends with the next few users, and then
+ * sends a mix of SEND_MESSAGE, GET_MESSAGES, SEARCH_USER and logout/login churn at a
+ * target rate for a fixed time.
+ *
+ * Arrivals are open-loop: requests are scheduled at random (Poisson) times at the
+ * target rate whether or not earlier ones have been answered, and latency is measured
+ * from the scheduled time. A server that falls behind shows up as growing latency
+ * instead of quietly lowering the offered load.
+ *
+ * Without --port, a server is started in this JVM on a free port with rate limiting
+ * off (every client comes from one address). Run it from a scratch directory: the
+ * server writes userDatabase.ser and offlineInbox.ser there.
+ *
+ * Usage: java src.test.app.LoadGenerator [--host=localhost] [--port=2424] [--users=200]
+ *        [--friends=3] [--rate=200] [--duration=30] [--drain=10] [--seed=1]
+ *        [--mix=SEND_MESSAGE:50,GET_MESSAGES:30,SEARCH_USER:15,CHURN:5]
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+public class LoadGenerator {
+    private static final String PASSWORD = "loadtest";
+    private static final long SETUP_TIMEOUT_MS = 120_000;
+
+    /** Reply prefixes that complete each command successfully. */
+    private static final Map<String, String[]> REPLIES = Map.of(
+            "CREATE_ACCOUNT", new String[] {"CREATE_ACCOUNT_SUCCESS"},
+            "LOGIN", new String[] {"LOGIN_SUCCESS"},
+            "LOGOUT", new String[] {"LOGOUT_SUCCESS"},
+            "ADD_FRIEND", new String[] {"ADD_FRIEND_SUCCESS"},
+            "APPROVE_FRIEND_REQUEST", new String[] {"APPROVE_FRIEND_REQUEST_SUCCESS"},
+            "SEND_MESSAGE", new String[] {"SEND_MESSAGE_SUCCESS"},
+            "GET_MESSAGES", new String[] {"MESSAGES_LIST"},
+            "SEARCH_USER", new String[] {"SEARCH_USER_RESULTS"});
+
+    /** Latency and outcome counts for one command. */
+    private static final class Stats {
+        private final Histogram latency = new Histogram();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Map<String, LongAdder> reasons = new ConcurrentHashMap<>();
+
+        void error(String reason) {
+            errors.increment();
+            reasons.computeIfAbsent(reason, k -> new LongAdder()).increment();
+        }
+    }
+
+    /** A request waiting for its reply. */
+    private static final class Pending {
+        private final String command;
+        private final long scheduledNanos;
+
+        Pending(String command, long scheduledNanos) {
+            this.command = command;
+            this.scheduledNanos = scheduledNanos;
+        }
+    }
+
+    /**
+     * One simulated user and its connection. The server answers each connection's
+     * requests in order, so replies are matched to the oldest request still waiting.
+     * Pushes and other lines that match no reply are skipped.
+     */
+    private final class SimulatedUser implements Client.ClientListener {
+        private final String username;
+        private final List<String> friends = new ArrayList<>();
+        private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private Client client;
+
+        SimulatedUser(String username) {
+            this.username = username;
+        }
+
+        void connect() throws IOException {
+            client = new Client(host, port, this);
+            Thread reader = new Thread(client, "load-" + username);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /** Queues and sends in one step, so the queue order is the send order. */
+        synchronized void send(String command, String request, long scheduledNanos) {
+            stats(command).sent.increment();
+            outstanding.incrementAndGet();
+            pending.add(new Pending(command, scheduledNanos));
+            client.sendMessage(request);
+        }
+
+        @Override
+        public void onMessageReceived(String message) {
+            Pending head = pending.peek();
+            if (head == null) {
+                return;
+            }
+            boolean failed = message.startsWith("ERROR") || message.startsWith("RATE_LIMITED")
+                    || message.startsWith("LOGIN_FAILURE") || message.startsWith("LOGIN_BUSY");
+            boolean matched = false;
+            for (String prefix : REPLIES.get(head.command)) {
+                matched |= message.startsWith(prefix);
+            }
+            if (!failed && !matched) {
+                return;
+            }
+            pending.poll();
+            Stats stats = stats(head.command);
+            if (failed) {
+                int comma = message.indexOf(',');
+                stats.error(message.startsWith("ERROR") && comma > 0 ? message.substring(comma + 1)
+                        : comma > 0 ? message.substring(0, comma) : message);
+            } else {
+                stats.ok.increment();
+            }
+            stats.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - head.scheduledNanos));
+            outstanding.decrementAndGet();
+        }
+
+        /** Counts every request still waiting as timed out. */
+        void expire() {
+            Pending p;
+            while ((p = pending.poll()) != null) {
+                stats(p.command).error("timeout");
+                outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final List<SimulatedUser> users = new ArrayList<>();
+
+    LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    private Stats stats(String command) {
+        return stats.computeIfAbsent(command, k -> new Stats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.out.println("Unknown argument " + arg + ". See the class comment for usage.");
+                return;
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        int userCount = Integer.parseInt(options.getOrDefault("users", "200"));
+        int friendCount = Integer.parseInt(options.getOrDefault("friends", "3"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int drain = Integer.parseInt(options.getOrDefault("drain", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix",
+                "SEND_MESSAGE:50,GET_MESSAGES:30,SEARCH_USER:15,CHURN:5"));
+
+        Server server = null;
+        String host = options.getOrDefault("host", "localhost");
+        int port;
+        if (options.containsKey("port")) {
+            port = Integer.parseInt(options.get("port"));
+        } else {
+            System.setProperty("chat.ratelimit.enabled", "false");
+            if (System.getProperty("chat.log.level") == null) {
+                System.setProperty("chat.log.level", "WARN");
+            }
+            server = new Server(0);
+            server.start();
+            port = server.getPort();
+        }
+
+        LoadGenerator generator = new LoadGenerator(host, port);
+        try {
+            generator.setUp(userCount, friendCount, seed);
+            generator.run(rate, duration, drain, mix, new Random(seed));
+            generator.report(duration);
+        } finally {
+            generator.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split(":");
+            String command = parts[0].trim().toUpperCase();
+            if (!command.equals("CHURN") && !REPLIES.containsKey(command)) {
+                throw new IllegalArgumentException("Unsupported command in mix: " + command);
+            }
+            mix.put(command, Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * Connects and registers every user, then makes user i friends with users
+     * i+1 .. i+friends (wrapping around). Each step waits for all replies.
+     */
+    void setUp(int userCount, int friendCount, long seed) throws IOException, InterruptedException {
+        String prefix = "lg" + Long.toString(System.currentTimeMillis() % 1_000_000 + seed, 36) + "_";
+        for (int i = 0; i < userCount; i++) {
+            SimulatedUser user = new SimulatedUser(prefix + i);
+            user.connect();
+            users.add(user);
+        }
+        System.out.println("Connected " + userCount + " clients to " + host + ":" + port);
+
+        for (SimulatedUser user : users) {
+            user.send("CREATE_ACCOUNT", "CREATE_ACCOUNT," + user.username + "," + PASSWORD
+                    + ",load@test,2000-01-01,Load test user,public", System.nanoTime());
+        }
+        awaitReplies("registration");
+
+        int links = Math.min(friendCount, userCount - 1);
+        for (int i = 0; i < userCount; i++) {
+            for (int k = 1; k <= links; k++) {
+                SimulatedUser friend = users.get((i + k) % userCount);
+                users.get(i).send("ADD_FRIEND", "ADD_FRIEND," + friend.username, System.nanoTime());
+            }
+        }
+        awaitReplies("friend requests");
+        for (int i = 0; i < userCount; i++) {
+            for (int k = 1; k <= links; k++) {
+                SimulatedUser requester = users.get(i);
+                SimulatedUser friend = users.get((i + k) % userCount);
+                friend.send("APPROVE_FRIEND_REQUEST", "APPROVE_FRIEND_REQUEST," + requester.username, System.nanoTime());
+                requester.friends.add(friend.username);
+                friend.friends.add(requester.username);
+            }
+        }
+        awaitReplies("friend approvals");
+        stats.clear();
+    }
+
+    private void awaitReplies(String phase) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (outstanding.get() > 0 && System.currentTimeMillis() - start < SETUP_TIMEOUT_MS) {
+            Thread.sleep(20);
+        }
+        long errors = stats.values().stream().mapToLong(s -> s.errors.sum()).sum();
+        System.out.println("Finished " + phase + " in " + (System.currentTimeMillis() - start) + " ms, "
+                + outstanding.get() + " unanswered, " + errors + " errors so far");
+    }
+
+    /**
+     * Sends requests at Poisson arrival times for the given number of seconds, then
+     * waits up to drain seconds for the last replies.
+     */
+    void run(double rate, int durationSeconds, int drainSeconds, Map<String, Integer> mix, Random random)
+            throws InterruptedException {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double meanGapNanos = 1e9 / rate;
+        long next = start;
+        long late = 0;
+        while (next < end) {
+            long now = System.nanoTime();
+            if (next > now) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            } else if (now - next > 1_000_000) {
+                late++;
+            }
+            issue(pick(mix, totalWeight, random), users.get(random.nextInt(users.size())), next, random);
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+        }
+        if (late > 0) {
+            System.out.println("Warning: " + late + " requests were sent more than 1 ms after their scheduled time;"
+                    + " the generator itself may be the bottleneck.");
+        }
+        long drainEnd = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(drainSeconds);
+        while (outstanding.get() > 0 && System.currentTimeMillis() < drainEnd) {
+            Thread.sleep(20);
+        }
+        for (SimulatedUser user : users) {
+            user.expire();
+        }
+    }
+
+    private static String pick(Map<String, Integer> mix, int totalWeight, Random random) {
+        int roll = random.nextInt(totalWeight);
+        for (Map.Entry<String, Integer> e : mix.entrySet()) {
+            roll -= e.getValue();
+            if (roll < 0) {
+                return e.getKey();
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    private void issue(String operation, SimulatedUser user, long scheduledNanos, Random random) {
+        String friend = user.friends.isEmpty() ? user.username : user.friends.get(random.nextInt(user.friends.size()));
+        switch (operation) {
+            case "SEND_MESSAGE":
+                user.send("SEND_MESSAGE", "SEND_MESSAGE," + friend + ",Load test message " + scheduledNanos, scheduledNanos);
+                break;
+            case "GET_MESSAGES":
+                user.send("GET_MESSAGES", "GET_MESSAGES," + friend, scheduledNanos);
+                break;
+            case "SEARCH_USER":
+                user.send("SEARCH_USER", "SEARCH_USER," + friend.substring(0, friend.length() - 1), scheduledNanos);
+                break;
+            case "CHURN":
+                // Both go out back to back; commands queued behind them run once logged in again.
+                synchronized (user) {
+                    user.send("LOGOUT", "LOGOUT", scheduledNanos);
+                    user.send("LOGIN", "LOGIN," + user.username + "," + PASSWORD, scheduledNanos);
+                }
+                break;
+            default:
+                user.send(operation, operation, scheduledNanos);
+                break;
+        }
+    }
+
+    /** Prints one CSV row per command, followed by the error reasons. */
+    void report(int durationSeconds) {
+        System.out.println("command, sent, ok, errors, ok/s, p50_ms, p99_ms, p999_ms, max_ms");
+        Map<String, Stats> sorted = new TreeMap<>(stats);
+        for (Map.Entry<String, Stats> e : sorted.entrySet()) {
+            Stats s = e.getValue();
+            long ok = s.ok.sum();
+            System.out.printf("%s, %d, %d, %d, %.1f, %.2f, %.2f, %.2f, %.2f%n", e.getKey(), s.sent.sum(), ok,
+                    s.errors.sum(), ok / (double) durationSeconds, s.latency.getPercentile(50) / 1000.0,
+                    s.latency.getPercentile(99) / 1000.0, s.latency.getPercentile(99.9) / 1000.0,
+                    s.latency.getMax() / 1000.0);
+        }
+        for (Map.Entry<String, Stats> e : sorted.entrySet()) {
+            for (Map.Entry<String, LongAdder> reason : e.getValue().reasons.entrySet()) {
+                System.out.println("error, " + e.getKey() + ", " + reason.getValue().sum() + ", " + reason.getKey());
+            }
+        }
+    }
+
+    void close() {
+        for (SimulatedUser user : users) {
+            if (user.client != null) {
+                user.client.sendMessage("EXIT");
+                user.client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- LoggerLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the Logger and LogSink classes, such as per-package levels,
+ * formatting on the writer side and dropping or sampling under overload.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class LoggerLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private ByteArrayOutputStream sinkOut;
+
+        private LogSink sink(int capacity, int sampleRate) {
+            sinkOut = new ByteArrayOutputStream();
+            return new LogSink(capacity, sampleRate, new PrintStream(sinkOut, true));
+        }
+
+        //Case A: Test if the longest configured prefix decides the level
+        @Test(timeout = 1000)
+        public void verifyPerPackageLevels() {
+            System.setProperty("chat.log.level.test.pkg", "WARN");
+            System.setProperty("chat.log.level.test.pkg.Chatty", "DEBUG");
+            try {
+                assertTrue(new Logger("test.pkg.Quiet", null).isEnabled(Logger.Level.WARN));
+                assertFalse(new Logger("test.pkg.Quiet", null).isEnabled(Logger.Level.INFO));
+                assertTrue(new Logger("test.pkg.Chatty", null).isEnabled(Logger.Level.DEBUG));
+                assertTrue(new Logger("other.Thing", null).isEnabled(Logger.Level.INFO));
+                assertFalse(new Logger("other.Thing", null).isEnabled(Logger.Level.DEBUG));
+            } finally {
+                System.clearProperty("chat.log.level.test.pkg");
+                System.clearProperty("chat.log.level.test.pkg.Chatty");
+            }
+        }
+
+        //Case B: Test if a disabled level queues nothing
+        @Test(timeout = 1000)
+        public void verifyDisabledLevelSkipsSink() {
+            LogSink sink = sink(16, 1);
+            Logger logger = new Logger("test.Disabled", sink);
+            logger.debug("hidden {}", "value");
+            assertEquals(0, sink.getBacklog());
+            logger.info("shown {}", "value");
+            assertEquals(1, sink.getBacklog());
+        }
+
+        //Case C: Test if the writer fills in arguments and prints trailing exceptions
+        @Test(timeout = 1000)
+        public void verifyFormatting() {
+            LogSink sink = sink(16, 1);
+            Logger logger = new Logger("test.Format", sink);
+            logger.info("{} sent {} messages", "alice", 3);
+            logger.error("Save failed for {}", "bob", new IOException("disk full"));
+            assertEquals(2, sink.drain());
+            String output = sinkOut.toString();
+            assertTrue(output, output.contains("INFO  [") && output.contains("Format - alice sent 3 messages"));
+            assertTrue(output, output.contains("ERROR [") && output.contains("Save failed for bob"));
+            assertTrue(output, output.contains("java.io.IOException: disk full"));
+            assertEquals(0, sink.getBacklog());
+        }
+
+        //Case D: Test if a full ring drops lines and reports the loss
+        @Test(timeout = 1000)
+        public void verifyOverflowDrops() {
+            LogSink sink = sink(8, 1);
+            for (int i = 0; i < 12; i++) {
+                sink.offer(Logger.Level.ERROR, "Overflow", "line {}", i, null, null);
+            }
+            assertEquals(8, sink.getBacklog());
+            assertEquals(4, sink.getDroppedCount());
+            assertEquals(8, sink.drain());
+            assertTrue(sinkOut.toString().contains("Log buffer overloaded: 4 lines lost"));
+            assertTrue(sink.offer(Logger.Level.ERROR, "Overflow", "after", null, null, null));
+        }
+
+        //Case E: Test if lines below WARN are sampled once the ring is nearly full
+        @Test(timeout = 1000)
+        public void verifySamplingUnderLoad() {
+            LogSink sink = sink(16, 4);
+            for (int i = 0; i < 12; i++) {
+                assertTrue(sink.offer(Logger.Level.INFO, "Sample", "fill", null, null, null));
+            }
+            int kept = 0;
+            for (int i = 0; i < 8; i++) {
+                if (sink.offer(Logger.Level.INFO, "Sample", "extra", null, null, null)) {
+                    kept++;
+                }
+            }
+            assertEquals(2, kept);
+            assertEquals(6, sink.getSampledOutCount());
+            // Warnings are not sampled while there is room.
+            assertTrue(sink.offer(Logger.Level.WARN, "Sample", "warn", null, null, null));
+        }
+    }
+}
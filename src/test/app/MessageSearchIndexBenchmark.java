@@ -0,0 +1,83 @@
+package src.test.app;
+
+import src.main.app.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Team Project -- MessageSearchIndexBenchmark
+ *
+ * Measures how fast the MessageSearchIndex indexes messages and how long
+ * SEARCH_MESSAGES style queries take once a history has been indexed.
+ * Usage: java src.test.app.MessageSearchIndexBenchmark [messages] [queries]
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+public class MessageSearchIndexBenchmark {
+    private static final String[] WORDS = {
+        "lunch", "dinner", "homework", "project", "exam", "meet", "library", "gym", "tomorrow", "today",
+        "call", "later", "thanks", "sure", "maybe", "weekend", "movie", "game", "class", "lab",
+        "purdue", "java", "server", "client", "bug", "fix", "deadline", "coffee", "walk", "bus"
+    };
+
+    public static void main(String[] args) {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        PrintStream originalOutput = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        User[] users = new User[10];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User("Bench" + i, "bench" + i, "pw", "profile", "pic");
+        }
+        System.setOut(originalOutput);
+
+        Random random = new Random(42);
+        List<Message> messages = new ArrayList<>(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            int senderIndex = random.nextInt(users.length);
+            User sender = users[senderIndex];
+            User recipient = users[(senderIndex + 1 + random.nextInt(users.length - 1)) % users.length];
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            Message msg = new Message(sender, recipient, text.toString());
+            Conversation.between(sender, recipient).append(msg);
+            messages.add(msg);
+        }
+
+        MessageSearchIndex index = new MessageSearchIndex();
+        long start = System.nanoTime();
+        for (Message msg : messages) {
+            index.indexAsync(msg);
+        }
+        index.flush();
+        long indexNanos = System.nanoTime() - start;
+        System.out.printf("Indexed %d messages in %.1f ms (%.0f messages/s)%n",
+                messageCount, indexNanos / 1e6, messageCount / (indexNanos / 1e9));
+
+        long[] latencies = new long[queryCount];
+        int hits = 0;
+        for (int i = 0; i < queryCount; i++) {
+            User user = users[random.nextInt(users.length)];
+            String query = WORDS[random.nextInt(WORDS.length)]
+                    + (random.nextBoolean() ? " " + WORDS[random.nextInt(WORDS.length)] : "");
+            long queryStart = System.nanoTime();
+            hits += index.search(user, query, null, MessageSearchIndex.DEFAULT_RESULT_LIMIT).size();
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("Ran %d queries (%d results): p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                queryCount, hits,
+                latencies[queryCount / 2] / 1e3,
+                latencies[(int) (queryCount * 0.99)] / 1e3,
+                latencies[queryCount - 1] / 1e3);
+    }
+}
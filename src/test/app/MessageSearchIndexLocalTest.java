@@ -0,0 +1,158 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- MessageSearchIndexLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the MessageSearchIndex class, such as tokenizing, ranking results
+ * by recency and skipping deleted messages.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class MessageSearchIndexLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private User[] friends() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            user2.getFriendsDB().sendFriendRequest(user1);
+            user2.getFriendsDB().approveFriendRequest(user1);
+            return new User[] {user1, user2};
+        }
+
+        //Case A: Test if text is split into distinct lower-case words
+        @Test(timeout = 1000)
+        public void verifyTokenize() {
+            List<String> tokens = MessageSearchIndex.tokenize("Lunch at 12? lunch, then GYM!");
+            assertEquals(List.of("lunch", "at", "12", "then", "gym"), tokens);
+        }
+
+        //Case B: Test if both participants can find a message, newest first (successful)
+        @Test(timeout = 1000)
+        public void verifySearchNewestFirst() {
+            User[] users = friends();
+            Message older = users[0].getMessagingDB().postMessage("Lunch tomorrow?", users[1]);
+            Message newer = users[1].getMessagingDB().postMessage("Sure, lunch at noon", users[0]);
+            users[1].getMessagingDB().postMessage("See you", users[0]);
+            MessageSearchIndex.getShared().flush();
+
+            List<Message> results = users[0].getMessagingDB().searchMessages("LUNCH", null, 10);
+            assertEquals(List.of(newer, older), results);
+            assertEquals(List.of(newer), users[1].getMessagingDB().searchMessages("lunch noon", null, 10));
+            assertEquals(List.of(newer), users[1].getMessagingDB().searchMessages("lunch", null, 1));
+        }
+
+        //Case C: Test if deleted messages are no longer returned (failure)
+        @Test(timeout = 1000)
+        public void verifySearchSkipsDeleted() {
+            User[] users = friends();
+            Message msg = users[0].getMessagingDB().postMessage("secret plan", users[1]);
+            MessageSearchIndex.getShared().flush();
+            assertTrue(users[0].getMessagingDB().deleteMessage(msg.getId()));
+
+            assertTrue(users[1].getMessagingDB().searchMessages("secret", null, 10).isEmpty());
+        }
+
+        //Case D: Test if edited messages are found by their new text only
+        @Test(timeout = 1000)
+        public void verifySearchAfterEdit() {
+            User[] users = friends();
+            Message msg = users[0].getMessagingDB().postMessage("meet at the library", users[1]);
+            assertTrue(users[0].getMessagingDB().editMessage(msg.getId(), "meet at the gym"));
+            MessageSearchIndex.getShared().flush();
+
+            assertTrue(users[1].getMessagingDB().searchMessages("library", null, 10).isEmpty());
+            assertEquals(List.of(msg), users[1].getMessagingDB().searchMessages("gym", null, 10));
+        }
+
+        //Case E: Test if a search can be limited to one conversation
+        @Test(timeout = 1000)
+        public void verifySearchByFriend() {
+            User[] users = friends();
+            User other = new User("F", "G", "H", "I", "J");
+            users[0].getFriendsDB().sendFriendRequest(other);
+            users[0].getFriendsDB().approveFriendRequest(other);
+            Message first = users[0].getMessagingDB().postMessage("hello there", users[1]);
+            Message second = users[0].getMessagingDB().postMessage("hello again", other);
+            MessageSearchIndex.getShared().flush();
+
+            assertEquals(List.of(second, first), users[0].getMessagingDB().searchMessages("hello", null, 10));
+            assertEquals(List.of(first), users[0].getMessagingDB().searchMessages("hello", users[1], 10));
+        }
+
+        //Case F: Test if deletes and edits prune the postings of text that is gone
+        @Test(timeout = 1000)
+        public void verifyPostingsPruned() {
+            User[] users = friends();
+            MessageSearchIndex index = new MessageSearchIndex();
+            Message kept = new Message(users[0], users[1], "lunch at noon");
+            Message deleted = new Message(users[0], users[1], "secret lunch plan");
+            index.index(kept);
+            index.index(deleted);
+            assertEquals(6, index.getPostingCount(users[1]));
+
+            index.removeAsync(deleted, "secret lunch plan");
+            index.reindexAsync(kept, "lunch at noon", "lunch at one");
+            index.flush();
+            assertEquals(3, index.getPostingCount(users[0]));
+            assertEquals(3, index.getPostingCount(users[1]));
+        }
+    }
+}
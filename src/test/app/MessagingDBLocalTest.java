@@ -8,11 +8,17 @@ import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
 import org.junit.runner.RunWith;
 import org.junit.runner.notification.Failure;
+import src.main.app.Conversation;
+import src.main.app.ConversationLog;
+import src.main.app.Message;
 import src.main.app.User;
 import java.io.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Team Project -- MessagingDBLocalTest
@@ -217,5 +223,215 @@ public class MessagingDBLocalTest {
             assertFalse(user2.getMessagingDB().photoMessage(photo, user2));
             assertTrue(user1.getMessagingDB().getPhotos(user2).isEmpty());
         }
+
+        //Case M: Test if both participants read the same stored message (successful)
+        @Test(timeout = 1000)
+        public void verifyConversationSharedByBothUsers() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            assertTrue(user1.getMessagingDB().addMessage("Hi", user2));
+
+            assertEquals(1, user1.getMessagingDB().getMessages(user2).size());
+            assertEquals(user1.getMessagingDB().getMessages(user2), user2.getMessagingDB().getMessages(user1));
+        }
+
+        //Case N: Test if the read cursor of each user is tracked separately (successful)
+        @Test(timeout = 1000)
+        public void verifyUnreadCountPerUser() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            assertTrue(user1.getMessagingDB().addMessage("Hi", user2));
+            assertTrue(user1.getMessagingDB().addMessage("Hello", user2));
+
+            assertEquals(2, user2.getMessagingDB().getUnreadCount(user1));
+            user2.getMessagingDB().markRead(user1);
+            assertEquals(0, user2.getMessagingDB().getUnreadCount(user1));
+            assertEquals(2, user1.getMessagingDB().getUnreadCount(user2));
+        }
+
+        //Case O: Test if deleting by id only removes that one message, for both users (successful)
+        @Test(timeout = 1000)
+        public void verifyDeleteMessageById() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            Message first = user1.getMessagingDB().postMessage("Hi", user2);
+            Message second = user1.getMessagingDB().postMessage("Hi", user2);
+
+            assertTrue(user1.getMessagingDB().deleteMessage(first.getId()));
+            assertFalse(user1.getMessagingDB().deleteMessage(first.getId()));
+            assertEquals(1, user1.getMessagingDB().getMessages(user2).size());
+            assertEquals(1, user2.getMessagingDB().getMessages(user1).size());
+            assertNull(user2.getMessagingDB().findMessage(first.getId()));
+            assertNotNull(user2.getMessagingDB().findMessage(second.getId()));
+        }
+
+        //Case P: Test if only the sender can edit a message (successful and failure)
+        @Test(timeout = 1000)
+        public void verifyEditMessageById() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            Message msg = user1.getMessagingDB().postMessage("Hi", user2);
+
+            assertFalse(user2.getMessagingDB().editMessage(msg.getId(), "Bye"));
+            assertTrue(user1.getMessagingDB().editMessage(msg.getId(), "Hello"));
+            assertEquals("Hello", user2.getMessagingDB().findMessage(msg.getId()).getContent());
+            assertTrue(msg.isEdited());
+        }
+
+        //Case Q: Test if a conversation can be read backwards one page at a time (successful)
+        @Test(timeout = 1000)
+        public void verifyMessagePages() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(user1.getMessagingDB().addMessage("Message " + i, user2));
+            }
+
+            Conversation.Page newest = user2.getMessagingDB().getMessagePage(user1, -1, 2);
+            assertEquals(2, newest.getMessages().size());
+            assertEquals("Message 4", newest.getMessages().get(1).getContent());
+            assertEquals(3, newest.getNextCursor());
+
+            Conversation.Page oldest = user2.getMessagingDB().getMessagePage(user1, 1, 2);
+            assertEquals(1, oldest.getMessages().size());
+            assertEquals("Message 0", oldest.getMessages().get(0).getContent());
+            assertEquals(0, oldest.getNextCursor());
+        }
+
+        //Case R: Test if compactly stored messages give back the original content and participants
+        @Test(timeout = 1000)
+        public void verifyMessageRoundTrip() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            Message text = new Message(user1, user2, "Caf\u00e9 at 5? \u2615");
+            Message photo = new Message(user1, user2, new File("test.jpg"));
+
+            assertEquals("Caf\u00e9 at 5? \u2615", text.getContent());
+            assertSame(user1, text.getSender());
+            assertSame(user2, text.getRecipient());
+            assertNull(text.getPhoto());
+            assertEquals(new File("test.jpg"), photo.getPhoto());
+            assertNull(photo.getContent());
+            assertTrue(text.toString().endsWith("B: Caf\u00e9 at 5? \u2615"));
+        }
+
+        //Case S: Test if concurrent sends in both directions are all kept (successful)
+        @Test(timeout = 5000)
+        public void verifyConcurrentAppends() throws InterruptedException {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            user2.getFriendsDB().sendFriendRequest(user1);
+            user2.getFriendsDB().approveFriendRequest(user1);
+
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                User sender = t % 2 == 0 ? user1 : user2;
+                User recipient = sender == user1 ? user2 : user1;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        sender.getMessagingDB().addMessage("Hi " + i, recipient);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(2000, Conversation.find(user1, user2).size());
+            assertEquals(2000, user2.getMessagingDB().getMessages(user1).size());
+        }
+
+        //Case T: Test if a message ID leads to its own conversation and no other (successful and failure)
+        @Test(timeout = 1000)
+        public void verifyMessageIdLookup() {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            User user3 = new User("P", "Q", "R", "S", "T");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            user1.getFriendsDB().sendFriendRequest(user3);
+            user1.getFriendsDB().approveFriendRequest(user3);
+            Message toUser2 = user1.getMessagingDB().postMessage("Hi", user2);
+            Message toUser3 = user1.getMessagingDB().postMessage("Hi", user3);
+
+            assertSame(Conversation.find(user1, user2), Conversation.findByMessageId(toUser2.getId()));
+            assertSame(Conversation.find(user1, user3), Conversation.findByMessageId(toUser3.getId()));
+            assertTrue(toUser3.getId() > toUser2.getId());
+            assertNull(Conversation.find(user1, user3).getMessage(toUser2.getId()));
+            assertNull(user3.getMessagingDB().findMessage(toUser2.getId()));
+            assertSame(toUser2, user2.getMessagingDB().findMessage(toUser2.getId()));
+            assertNull(Conversation.findByMessageId(0));
+        }
+
+        //Case U: Test if a filled position waits for an earlier append before it is published (successful)
+        @Test(timeout = 5000)
+        public void verifyAwaitPublication() throws InterruptedException {
+            ConversationLog log = new ConversationLog();
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            Message first = new Message(user1, user2, "first");
+            Message second = new Message(user2, user1, "second");
+            int earlier = log.reserve();
+            int later = log.reserve();
+            log.fill(later, second);
+            assertEquals(0, log.size());
+
+            Message[] seen = new Message[1];
+            Thread reader = new Thread(() -> seen[0] = log.await(later));
+            reader.start();
+            reader.join(200);
+            assertTrue(reader.isAlive());
+
+            log.fill(earlier, first);
+            reader.join();
+            assertSame(second, seen[0]);
+            assertEquals(2, log.size());
+        }
+
+        //Case V: Test if a message can always be found by ID as soon as it is sent (successful)
+        @Test(timeout = 10000)
+        public void verifyFindAfterConcurrentSends() throws InterruptedException {
+            User user1 = new User("A", "B", "C", "D", "E");
+            User user2 = new User("V", "W", "X", "Y", "Z");
+            user1.getFriendsDB().sendFriendRequest(user2);
+            user1.getFriendsDB().approveFriendRequest(user2);
+            int[] missed = new int[4];
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int index = t;
+                User sender = t % 2 == 0 ? user1 : user2;
+                User recipient = sender == user1 ? user2 : user1;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        Message sent = sender.getMessagingDB().postMessage("Hi " + i, recipient);
+                        if (sender.getMessagingDB().findMessage(sent.getId()) != sent) {
+                            missed[index]++;
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (int count : missed) {
+                assertEquals(0, count);
+            }
+            assertEquals(8000, Conversation.find(user1, user2).size());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- MetricsLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the Histogram and Metrics classes, such as percentile accuracy,
+ * counting under concurrent recording and the STATS report format.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class MetricsLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        //Case A: Test if small values are recorded exactly
+        @Test(timeout = 1000)
+        public void verifySmallValuesExact() {
+            Histogram histogram = new Histogram();
+            for (int i = 1; i <= 10; i++) {
+                histogram.record(i);
+            }
+            assertEquals(10, histogram.getCount());
+            assertEquals(10, histogram.getMax());
+            assertEquals(5.5, histogram.getMean(), 0.0001);
+            assertEquals(5, histogram.getPercentile(50));
+            assertEquals(10, histogram.getPercentile(100));
+            assertEquals(0, new Histogram().getPercentile(99));
+        }
+
+        //Case B: Test if percentiles of large values stay within the bucket error
+        @Test(timeout = 2000)
+        public void verifyPercentileAccuracy() {
+            Histogram histogram = new Histogram();
+            for (int i = 1; i <= 100_000; i++) {
+                histogram.record(i);
+            }
+            long p50 = histogram.getPercentile(50);
+            long p99 = histogram.getPercentile(99);
+            long p999 = histogram.getPercentile(99.9);
+            assertTrue("p50 " + p50, p50 >= 50_000 && p50 <= 50_000 * 1.07);
+            assertTrue("p99 " + p99, p99 >= 99_000 && p99 <= 100_000);
+            assertTrue("p999 " + p999, p999 >= 99_900 && p999 <= 100_000);
+            assertEquals(100_000, histogram.getMax());
+        }
+
+        //Case C: Test if concurrent recording loses no samples
+        @Test(timeout = 5000)
+        public void verifyConcurrentRecording() throws InterruptedException {
+            Histogram histogram = new Histogram();
+            int threads = 4;
+            int perThread = 10_000;
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(i + offset);
+                    }
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+            assertEquals(threads * perThread, histogram.getCount());
+            assertEquals(perThread - 1 + threads - 1, histogram.getMax());
+        }
+
+        //Case D: Test if the report lists counters, gauges and histograms sorted by name
+        @Test(timeout = 1000)
+        public void verifyReportFormat() {
+            Metrics metrics = new Metrics();
+            metrics.counter("b.counter").add(3);
+            metrics.gauge("a.gauge", () -> 7);
+            metrics.histogram("c.latency").record(12);
+            assertSame(metrics.counter("b.counter"), metrics.counter("b.counter"));
+            assertEquals("a.gauge=7;b.counter=3;"
+                    + "c.latency{count=1,mean=12,p50=12,p99=12,p999=12,max=12}", metrics.report());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.io.File;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- OfflineInboxLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the OfflineInbox class, such as batching stored events, dropping the
+ * oldest events when full and surviving a restart.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class OfflineInboxLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private static final String SEPARATOR = String.valueOf(OfflineInbox.EVENT_SEPARATOR);
+
+        //Case A: Test if stored events come back oldest first in one frame, and only once
+        @Test(timeout = 1000)
+        public void verifyDrainInOrder() {
+            OfflineInbox inbox = new OfflineInbox(10, "testInboxA.ser");
+            inbox.store("bob", "MESSAGE,alice,1,hi");
+            inbox.store("bob", "FRIEND_REQUEST,carol");
+            assertEquals(2, inbox.size("bob"));
+            assertEquals(List.of("INBOX,2,MESSAGE,alice,1,hi" + SEPARATOR + "FRIEND_REQUEST,carol"), inbox.drain("bob"));
+            assertTrue(inbox.drain("bob").isEmpty());
+            assertTrue(inbox.drain("nobody").isEmpty());
+        }
+
+        //Case B: Test if a large inbox is split into frames of at most BATCH_SIZE events
+        @Test(timeout = 1000)
+        public void verifyBatching() {
+            OfflineInbox inbox = new OfflineInbox(1000, "testInboxB.ser");
+            int total = OfflineInbox.BATCH_SIZE * 2 + 5;
+            for (int i = 0; i < total; i++) {
+                inbox.store("bob", "MESSAGE,alice," + i + ",hello");
+            }
+            List<String> frames = inbox.drain("bob");
+            assertEquals(3, frames.size());
+            assertTrue(frames.get(0).startsWith("INBOX," + OfflineInbox.BATCH_SIZE + ",MESSAGE,alice,0,"));
+            assertTrue(frames.get(2).startsWith("INBOX,5,"));
+            assertTrue(frames.get(2).endsWith("MESSAGE,alice," + (total - 1) + ",hello"));
+        }
+
+        //Case C: Test if a full inbox drops its oldest events and reports how many
+        @Test(timeout = 1000)
+        public void verifyBoundedCapacity() {
+            OfflineInbox inbox = new OfflineInbox(3, "testInboxC.ser");
+            for (int i = 0; i < 5; i++) {
+                inbox.store("bob", "E" + i);
+            }
+            assertEquals(3, inbox.size("bob"));
+            assertEquals(List.of("INBOX_TRUNCATED,2", "INBOX,3,E2" + SEPARATOR + "E3" + SEPARATOR + "E4"), inbox.drain("bob"));
+        }
+
+        //Case D: Test if stored events survive a save and load into a fresh inbox
+        @Test(timeout = 2000)
+        public void verifyPersistence() {
+            File file = new File("testInboxD.ser");
+            file.delete();
+            OfflineInbox before = new OfflineInbox(10, file.getName());
+            before.store("bob", "USER_BLOCKED,alice");
+            before.store("dave", "MESSAGE,alice,7,hey");
+            before.save();
+
+            OfflineInbox after = new OfflineInbox(10, file.getName());
+            after.load();
+            assertEquals(List.of("INBOX,1,USER_BLOCKED,alice"), after.drain("bob"));
+            assertEquals(1, after.size("dave"));
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- RateLimiterLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the RateLimiter class, such as allowing a burst, throttling with a
+ * retry delay and keeping users, addresses and command classes apart.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class RateLimiterLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        // READ, WRITE, SEARCH, AUTH: one token per second, bursts of 3, addresses get twice that.
+        private RateLimiter limiter() {
+            return new RateLimiter(new double[] {1, 1, 1, 1}, new int[] {3, 3, 3, 3}, 2);
+        }
+
+        //Case A: Test if commands are sorted into the right classes
+        @Test(timeout = 1000)
+        public void verifyClassify() {
+            assertEquals(RateLimiter.CommandClass.AUTH, RateLimiter.classify("LOGIN"));
+            assertEquals(RateLimiter.CommandClass.SEARCH, RateLimiter.classify("SEARCH_USER"));
+            assertEquals(RateLimiter.CommandClass.WRITE, RateLimiter.classify("SEND_MESSAGE"));
+            assertEquals(RateLimiter.CommandClass.READ, RateLimiter.classify("GET_MESSAGES"));
+            assertNull(RateLimiter.classify("LOGOUT"));
+        }
+
+        //Case B: Test if a user gets a burst and is then throttled with a retry delay
+        @Test(timeout = 1000)
+        public void verifyUserBurstThenThrottle() {
+            RateLimiter limiter = limiter();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(0, limiter.acquire("alice", "10.0.0.1", "SEND_MESSAGE"));
+            }
+            long retryAfter = limiter.acquire("alice", "10.0.0.1", "SEND_MESSAGE");
+            assertTrue(retryAfter > 0 && retryAfter <= 1000);
+            // Another class and another user are unaffected.
+            assertEquals(0, limiter.acquire("alice", "10.0.0.1", "GET_MESSAGES"));
+            assertEquals(0, limiter.acquire("bob", "10.0.0.1", "SEND_MESSAGE"));
+            // Commands that are never limited still go through.
+            assertEquals(0, limiter.acquire("alice", "10.0.0.1", "LOGOUT"));
+        }
+
+        //Case C: Test if one address cannot exceed its own, larger bucket across many users
+        @Test(timeout = 1000)
+        public void verifyAddressLimit() {
+            RateLimiter limiter = limiter();
+            int allowed = 0;
+            for (int i = 0; i < 20; i++) {
+                if (limiter.acquire("user" + i, "10.0.0.2", "SEARCH_USER") == 0) {
+                    allowed++;
+                }
+            }
+            assertEquals(6, allowed);
+            assertEquals(0, limiter.acquire("user0", "10.0.0.3", "SEARCH_USER"));
+        }
+
+        //Case D: Test if racing threads never take more tokens than the bucket holds
+        @Test(timeout = 5000)
+        public void verifyConcurrentAcquire() throws InterruptedException {
+            RateLimiter limiter = new RateLimiter(new double[] {0.001, 0.001, 0.001, 0.001},
+                    new int[] {500, 500, 500, 500}, 100);
+            AtomicInteger allowed = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        if (limiter.acquire("hot", "10.0.0.4", "GET_MESSAGES") == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(500, allowed.get());
+        }
+
+        //Case E: Test if a disabled limiter lets everything through
+        @Test(timeout = 1000)
+        public void verifyDisabled() {
+            RateLimiter limiter = limiter();
+            limiter.setEnabled(false);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, limiter.acquire("alice", "10.0.0.5", "LOGIN"));
+            }
+        }
+
+        //Case F: Test if refilled buckets are dropped by a sweep on the executor, at most once an interval
+        @Test(timeout = 5000)
+        public void verifySweepOffRequestPath() {
+            List<Runnable> sweeps = new ArrayList<>();
+            RateLimiter limiter = new RateLimiter(new double[] {1e9, 1e9, 1e9, 1e9},
+                    new int[] {3, 3, 3, 3}, 1, sweeps::add);
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(0, limiter.acquire(null, "10.1." + (i / 256) + "." + (i % 256), "GET_MESSAGES"));
+            }
+            assertTrue(sweeps.isEmpty());
+
+            // Past the threshold a miss only queues the sweep; a second miss within the interval does not.
+            limiter.acquire(null, "10.2.0.1", "GET_MESSAGES");
+            limiter.acquire(null, "10.2.0.2", "GET_MESSAGES");
+            assertEquals(1, sweeps.size());
+            assertEquals(10_002, limiter.getTrackedKeyCount());
+
+            sweeps.get(0).run();
+            assertTrue(limiter.getTrackedKeyCount() < 10);
+        }
+
+        //Case G: Test if commands a user's bucket refuses do not use up the address bucket
+        @Test(timeout = 1000)
+        public void verifyRefusedUserCostsAddressNothing() {
+            RateLimiter limiter = limiter();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(0, limiter.acquire("alice", "10.0.0.6", "SEND_MESSAGE"));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertTrue(limiter.acquire("alice", "10.0.0.6", "SEND_MESSAGE") > 0);
+            }
+            // The address holds 6 tokens and alice only got 3, so bob still gets the other 3.
+            for (int i = 0; i < 3; i++) {
+                assertEquals(0, limiter.acquire("bob", "10.0.0.6", "SEND_MESSAGE"));
+            }
+            assertTrue(limiter.acquire("carol", "10.0.0.6", "SEND_MESSAGE") > 0);
+        }
+    }
+}
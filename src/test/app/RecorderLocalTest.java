@@ -0,0 +1,125 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- RecorderLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the Recorder class and the ChatEvents flight recorder events,
+ * such as starting, dumping and stopping a recording.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class RecorderLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        //Case A: Test if a dump contains the chat events recorded while it ran
+        @Test(timeout = 30000)
+        public void verifyDumpContainsChatEvents() throws IOException {
+            Path directory = Files.createTempDirectory("recorder");
+            Recorder recorder = new Recorder(directory, Duration.ofMinutes(1));
+            assertTrue(recorder.start());
+            try {
+                assertFalse(recorder.start());
+                User sender = new User("Rec Sender", "recSender", "password", "Bio", "sender.png");
+                User recipient = new User("Rec Recipient", "recRecipient", "password", "Bio", "recipient.png");
+                sender.getFriendsDB().sendFriendRequest(recipient);
+                recipient.getFriendsDB().approveFriendRequest(sender);
+                assertTrue(sender.getMessagingDB().addMessage("hello", recipient));
+                User.saveUsersToFile();
+
+                Path file = recorder.dump();
+                assertTrue(Files.size(file) > 0);
+                Set<String> names = new HashSet<>();
+                for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                    String name = event.getEventType().getName();
+                    names.add(name);
+                    if (name.equals("chat.AddMessage")) {
+                        assertEquals("recSender", event.getString("sender"));
+                        assertEquals(5, event.getInt("payloadSize"));
+                    }
+                }
+                assertTrue(names.toString(), names.contains("chat.AddMessage"));
+                assertTrue(names.toString(), names.contains("chat.SaveUsers"));
+            } finally {
+                assertTrue(recorder.stop());
+            }
+            assertFalse(recorder.isRecording());
+        }
+
+        //Case B: Test if dumping without a recording fails and stopping twice is harmless
+        @Test(timeout = 1000)
+        public void verifyNotRecording() throws IOException {
+            Recorder recorder = new Recorder(Files.createTempDirectory("recorder"), Duration.ofMinutes(1));
+            assertFalse(recorder.isRecording());
+            assertFalse(recorder.stop());
+            try {
+                recorder.dump();
+                fail("dump should fail without a recording");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("No recording"));
+            }
+        }
+    }
+}
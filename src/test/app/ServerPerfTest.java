@@ -0,0 +1,416 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- ServerPerfTest
+ *
+ * Performance tests for the server. Each case runs a fixed workload against a server
+ * started in this JVM on a free port, over real sockets, and compares its throughput
+ * and latency with the baselines in src/test/app/perfBaselines.properties. A result
+ * outside its tolerance band fails the case:
+ * - p50_ms must stay below baseline * (1 + band) + slack, and p99_ms below
+ *   baseline * (1 + 2 * band) + slack;
+ * - ops_per_s must stay above the rate at which each operation takes that much
+ *   longer, 1000 / (1000 / baseline * (1 + band) + slack);
+ * - ratio must stay below baseline * (1 + band).
+ * The band is -Dchat.perf.band (default 1.0, so throughput may halve and the median
+ * double before a case fails); raise it on noisy machines. The slack,
+ * -Dchat.perf.slack milliseconds (default 0.1), keeps scheduler noise on operations
+ * that take tens of microseconds from failing the build.
+ *
+ * The scaling case does not depend on the machine: it compares the message path on a
+ * conversation with 200 messages and one with 20,000, so a change that scans the
+ * whole history fails it wherever it runs. Its ratios are always checked, and gradle
+ * check runs it alone. Throughput and latency are only checked with
+ * -Dchat.perf.absolute=true (gradle perfTest), since they are only comparable on the
+ * machine the baselines came from; otherwise they are printed.
+ *
+ * Run with -Dchat.perf.update=true to write the measured values as the new baselines.
+ * The server writes its .ser files to the working directory, so run it from a scratch
+ * directory; gradle perfTest runs it in build/perf-run.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class ServerPerfTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /** One client connection that sends a request and waits for its reply. */
+    private static class Connection implements Closeable {
+        private final Socket socket;
+        private final PrintWriter out;
+        private final BufferedReader in;
+
+        Connection(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /** Sends a request and skips pushes until the reply that starts with the prefix. */
+        String request(String line, String replyPrefix) throws IOException {
+            out.println(line);
+            String reply;
+            while ((reply = in.readLine()) != null) {
+                if (reply.startsWith(replyPrefix)) {
+                    return reply;
+                }
+                if (reply.startsWith("ERROR") || reply.startsWith("RATE_LIMITED")) {
+                    throw new IOException(line.split(",", 2)[0] + " failed: " + reply);
+                }
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        /** Reads and discards everything the server pushes, on a daemon thread. */
+        void drainInBackground() {
+            Thread drain = new Thread(() -> {
+                try {
+                    while (in.readLine() != null) {
+                        // Only here so pushes never fill the socket buffer.
+                    }
+                } catch (IOException e) {
+                    // Closed at the end of the test.
+                }
+            }, "perf-drain");
+            drain.setDaemon(true);
+            drain.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /** Something measured once per operation. */
+    private interface Operation {
+        void run(int i) throws IOException;
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        private static final int WARMUP = 300;
+        private static final int OPERATIONS = 2000;
+        private static final double BAND = Double.parseDouble(System.getProperty("chat.perf.band", "1.0"));
+        private static final double SLACK_MS = Double.parseDouble(System.getProperty("chat.perf.slack", "0.1"));
+        private static final boolean UPDATE = Boolean.getBoolean("chat.perf.update");
+        private static final boolean ABSOLUTE = Boolean.getBoolean("chat.perf.absolute");
+        private static final Path BASELINES = Paths.get(
+                System.getProperty("chat.perf.baselines", "src/test/app/perfBaselines.properties"));
+        private static final String PASSWORD = "perfPassword1";
+
+        private static Server server;
+        private static final List<Connection> connections = new ArrayList<>();
+
+        @BeforeClass
+        public static void startServer() throws IOException {
+            System.setProperty("chat.ratelimit.enabled", "false");
+            RateLimiter.getShared().setEnabled(false);
+            Logger.setLevel("", Logger.Level.WARN);
+            server = new Server(0);
+            server.start();
+        }
+
+        @AfterClass
+        public static void stopServer() {
+            server.stop();
+        }
+
+        // Every SEND_MESSAGE saves all registered users, so each case starts with none:
+        // neither an earlier run's database nor another case's users may slow it down.
+        @Before
+        public void clearUsers() {
+            UserRegistry.getShared().clear();
+        }
+
+        @After
+        public void closeConnections() throws IOException {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            connections.clear();
+        }
+
+        private static User register(String username) {
+            User user = User.addUser("Perf " + username, username, PASSWORD, "Performance test user", "perf.png");
+            assertNotNull("Could not register " + username, user);
+            return user;
+        }
+
+        private static void befriend(User a, User b) {
+            a.getFriendsDB().sendFriendRequest(b);
+            b.getFriendsDB().approveFriendRequest(a);
+        }
+
+        private static Connection login(String username) throws IOException {
+            Connection connection = new Connection(server.getPort());
+            connections.add(connection);
+            connection.request("LOGIN," + username + "," + PASSWORD, "LOGIN_SUCCESS");
+            return connection;
+        }
+
+        private static String unique(String name) {
+            return name + Long.toString(System.nanoTime() % 1_000_000_000L, 36);
+        }
+
+        /**
+         * Runs an operation WARMUP times unmeasured, then OPERATIONS times measured.
+         *
+         * @return The latency of each measured operation in nanoseconds, sorted, followed
+         *         by the elapsed time of the whole measured run.
+         */
+        private static long[] measure(Operation operation) throws IOException {
+            for (int i = 0; i < WARMUP; i++) {
+                operation.run(i);
+            }
+            long[] latencies = new long[OPERATIONS + 1];
+            long begin = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                long start = System.nanoTime();
+                operation.run(WARMUP + i);
+                latencies[i] = System.nanoTime() - start;
+            }
+            latencies[OPERATIONS] = System.nanoTime() - begin;
+            Arrays.sort(latencies, 0, OPERATIONS);
+            return latencies;
+        }
+
+        private static double percentileMillis(long[] latencies, double percentile) {
+            int index = (int) Math.ceil(percentile * OPERATIONS) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+
+        /** Records throughput, p50 and p99 of a measured run under a workload name. */
+        private static void summarize(Map<String, Double> results, String workload, long[] latencies) {
+            results.put(workload + ".ops_per_s", OPERATIONS / (latencies[OPERATIONS] / 1e9));
+            results.put(workload + ".p50_ms", percentileMillis(latencies, 0.50));
+            results.put(workload + ".p99_ms", percentileMillis(latencies, 0.99));
+        }
+
+        /**
+         * Compares results with the stored baselines, or stores them in update mode.
+         * Fails with every metric outside its band; absolute figures only count with
+         * -Dchat.perf.absolute=true.
+         */
+        private static void checkAgainstBaselines(Map<String, Double> results) throws IOException {
+            Map<String, Double> baselines = loadBaselines();
+            if (UPDATE) {
+                baselines.putAll(results);
+                saveBaselines(baselines);
+                return;
+            }
+            List<String> regressions = new ArrayList<>();
+            for (Map.Entry<String, Double> e : results.entrySet()) {
+                String metric = e.getKey();
+                double measured = e.getValue();
+                Double baseline = baselines.get(metric);
+                boolean gated = ABSOLUTE || metric.startsWith("scaling.");
+                if (baseline == null) {
+                    if (!gated) {
+                        continue;
+                    }
+                    regressions.add(metric + " has no baseline; run with -Dchat.perf.update=true");
+                    continue;
+                }
+                boolean higherIsBetter = metric.endsWith(".ops_per_s");
+                double band = metric.endsWith(".p99_ms") ? 2 * BAND : BAND;
+                double limit;
+                if (higherIsBetter) {
+                    limit = 1000 / (1000 / baseline * (1 + band) + SLACK_MS);
+                } else if (metric.endsWith("_ms")) {
+                    limit = baseline * (1 + band) + SLACK_MS;
+                } else {
+                    limit = baseline * (1 + band);
+                }
+                boolean regressed = higherIsBetter ? measured < limit : measured > limit;
+                System.out.printf("%s: measured %.3f, baseline %.3f, limit %.3f%s%n", metric, measured, baseline,
+                        limit, !regressed ? "" : gated ? "  REGRESSION" : "  (not checked without chat.perf.absolute)");
+                if (!gated) {
+                    continue;
+                }
+                if (regressed) {
+                    regressions.add(String.format("%s is %.3f, beyond %.3f (baseline %.3f)",
+                            metric, measured, limit, baseline));
+                }
+            }
+            assertTrue(String.join("; ", regressions), regressions.isEmpty());
+        }
+
+        private static Map<String, Double> loadBaselines() throws IOException {
+            Map<String, Double> baselines = new TreeMap<>();
+            if (!Files.exists(BASELINES)) {
+                return baselines;
+            }
+            for (String line : Files.readAllLines(BASELINES, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                int equals = line.indexOf('=');
+                if (!line.isEmpty() && !line.startsWith("#") && equals > 0) {
+                    baselines.put(line.substring(0, equals).trim(), Double.parseDouble(line.substring(equals + 1).trim()));
+                }
+            }
+            return baselines;
+        }
+
+        private static synchronized void saveBaselines(Map<String, Double> baselines) throws IOException {
+            List<String> lines = new ArrayList<>();
+            lines.add("# Baselines for ServerPerfTest. Regenerate with -Dchat.perf.update=true");
+            lines.add("# (gradle perfTest -Pchat.perf.update=true) after a deliberate performance change.");
+            for (Map.Entry<String, Double> e : baselines.entrySet()) {
+                lines.add(e.getKey() + "=" + String.format("%.3f", e.getValue()));
+            }
+            Files.write(BASELINES, lines, StandardCharsets.UTF_8);
+        }
+
+        //Case A: Test SEND_MESSAGE throughput and latency to an online friend
+        @Test(timeout = 120_000)
+        public void verifySendMessage() throws IOException {
+            User alice = register(unique("sendA"));
+            User bob = register(unique("sendB"));
+            befriend(alice, bob);
+            login(bob.getUsername()).drainInBackground();
+            Connection sender = login(alice.getUsername());
+
+            String prefix = "SEND_MESSAGE," + bob.getUsername() + ",perf message number ";
+            long[] latencies = measure(i -> sender.request(prefix + i, "SEND_MESSAGE_SUCCESS"));
+
+            Map<String, Double> results = new TreeMap<>();
+            summarize(results, "send_message", latencies);
+            checkAgainstBaselines(results);
+        }
+
+        //Case B: Test GET_MESSAGES latency for the newest page of a conversation
+        @Test(timeout = 120_000)
+        public void verifyGetMessages() throws IOException {
+            User alice = register(unique("getA"));
+            User bob = register(unique("getB"));
+            befriend(alice, bob);
+            for (int i = 0; i < 1000; i++) {
+                (i % 2 == 0 ? alice : bob).getMessagingDB().addMessage("history message " + i, i % 2 == 0 ? bob : alice);
+            }
+            Connection reader = login(alice.getUsername());
+
+            String request = "GET_MESSAGES," + bob.getUsername();
+            long[] latencies = measure(i -> reader.request(request, "MESSAGES_LIST"));
+
+            Map<String, Double> results = new TreeMap<>();
+            summarize(results, "get_messages", latencies);
+            checkAgainstBaselines(results);
+        }
+
+        //Case C: Test SEARCH_USER latency with a few thousand registered users
+        @Test(timeout = 120_000)
+        public void verifySearchUser() throws IOException {
+            String prefix = unique("search");
+            for (int i = 0; i < 2000; i++) {
+                register(prefix + "_" + i);
+            }
+            Connection searcher = login(prefix + "_0");
+
+            long[] latencies = measure(i -> searcher.request("SEARCH_USER," + prefix + "_" + (i % 2000) + "9",
+                    "SEARCH_USER_RESULTS"));
+
+            Map<String, Double> results = new TreeMap<>();
+            summarize(results, "search_user", latencies);
+            checkAgainstBaselines(results);
+        }
+
+        //Case D: Test that the message path does not slow down with conversation length
+        @Test(timeout = 300_000)
+        public void verifyMessagePathScaling() throws IOException {
+            User shortA = register(unique("shortA"));
+            User shortB = register(unique("shortB"));
+            User longA = register(unique("longA"));
+            User longB = register(unique("longB"));
+            befriend(shortA, shortB);
+            befriend(longA, longB);
+            for (int i = 0; i < 200; i++) {
+                shortA.getMessagingDB().addMessage("history message " + i, shortB);
+            }
+            for (int i = 0; i < 20_000; i++) {
+                longA.getMessagingDB().addMessage("history message " + i, longB);
+            }
+            MessageSearchIndex.getShared().flush();
+            Connection shortConversation = login(shortA.getUsername());
+            Connection longConversation = login(longA.getUsername());
+
+            // The two sides alternate, so drift in machine speed affects both alike.
+            long[] getShort = new long[OPERATIONS + 1];
+            long[] getLong = new long[OPERATIONS + 1];
+            long[] sendShort = new long[OPERATIONS + 1];
+            long[] sendLong = new long[OPERATIONS + 1];
+            for (int i = -WARMUP; i < OPERATIONS; i++) {
+                long a = System.nanoTime();
+                shortConversation.request("GET_MESSAGES," + shortB.getUsername(), "MESSAGES_LIST");
+                long b = System.nanoTime();
+                longConversation.request("GET_MESSAGES," + longB.getUsername(), "MESSAGES_LIST");
+                long c = System.nanoTime();
+                shortConversation.request("SEND_MESSAGE," + shortB.getUsername() + ",scaling " + i, "SEND_MESSAGE_SUCCESS");
+                long d = System.nanoTime();
+                longConversation.request("SEND_MESSAGE," + longB.getUsername() + ",scaling " + i, "SEND_MESSAGE_SUCCESS");
+                long e = System.nanoTime();
+                if (i >= 0) {
+                    getShort[i] = b - a;
+                    getLong[i] = c - b;
+                    sendShort[i] = d - c;
+                    sendLong[i] = e - d;
+                }
+            }
+            for (long[] latencies : Arrays.asList(getShort, getLong, sendShort, sendLong)) {
+                Arrays.sort(latencies, 0, OPERATIONS);
+            }
+
+            Map<String, Double> results = new TreeMap<>();
+            results.put("scaling.get_messages.ratio",
+                    percentileMillis(getLong, 0.50) / percentileMillis(getShort, 0.50));
+            results.put("scaling.send_message.ratio",
+                    percentileMillis(sendLong, 0.50) / percentileMillis(sendShort, 0.50));
+            checkAgainstBaselines(results);
+        }
+    }
+}
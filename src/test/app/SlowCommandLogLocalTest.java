@@ -0,0 +1,160 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- SlowCommandLogLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the SlowCommandLog class, such as per-command thresholds,
+ * splitting a command's time into persistence and socket writes
+ * and rotating the log file.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class SlowCommandLogLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        private ByteArrayOutputStream sinkOut;
+        private LogSink sink;
+
+        private SlowCommandLog slowLog(long thresholdMillis, Map<String, Long> overrides) {
+            sinkOut = new ByteArrayOutputStream();
+            sink = new LogSink(16, 1, new PrintStream(sinkOut, true));
+            return new SlowCommandLog(thresholdMillis, overrides, sink);
+        }
+
+        //Case A: Test if only commands over their threshold are logged
+        @Test(timeout = 1000)
+        public void verifyThresholds() throws InterruptedException {
+            Map<String, Long> overrides = new HashMap<>();
+            overrides.put("GET_MESSAGES", 0L);
+            SlowCommandLog log = slowLog(10_000, overrides);
+
+            SlowCommandLog.Trace fast = log.begin(this, "SEARCH_USER");
+            assertFalse(log.end(fast, "alice", new String[] {"SEARCH_USER", "bob"}, 0));
+
+            SlowCommandLog.Trace slow = log.begin(this, "GET_MESSAGES");
+            Thread.sleep(2);
+            assertTrue(log.end(slow, "alice", new String[] {"GET_MESSAGES", "bob", "20"}, 0));
+
+            // Time queued in the mailbox counts toward the threshold too.
+            SlowCommandLog.Trace queued = log.begin(this, "SEARCH_USER");
+            assertTrue(log.end(queued, "alice", new String[] {"SEARCH_USER", "bob"}, 20_000_000_000L));
+
+            assertEquals(2, sink.drain());
+            String output = sinkOut.toString();
+            assertTrue(output, output.contains("GET_MESSAGES user=alice total="));
+            assertTrue(output, output.contains("args=3,2"));
+            assertTrue(output, output.contains("SEARCH_USER user=alice total=2000") && output.contains("queue=20000.0ms"));
+        }
+
+        //Case B: Test if persistence and socket writes are split out of the handler time
+        @Test(timeout = 1000)
+        public void verifyBreakdown() {
+            SlowCommandLog log = slowLog(0, new HashMap<>());
+            Object otherHandler = new Object();
+            SlowCommandLog.Trace trace = log.begin(this, "SEND_MESSAGE");
+            SlowCommandLog.recordPersistence(50_000_000L);
+            SlowCommandLog.recordWrite(this, 3_000_000L, 25);
+            SlowCommandLog.recordWrite(otherHandler, 4_000_000L, 40);
+            assertTrue(log.end(trace, null, new String[] {"SEND_MESSAGE", "bob", "hi"}, 0));
+
+            assertEquals(1, sink.drain());
+            String output = sinkOut.toString();
+            assertTrue(output, output.contains("SEND_MESSAGE user=- "));
+            assertTrue(output, output.contains("persist=50.0ms write=7.0ms"));
+            assertTrue(output, output.contains("result=25 replies=1 pushes=1"));
+
+            // Once the command has ended, later work on this thread is not charged to it.
+            SlowCommandLog.recordPersistence(1_000_000L);
+            SlowCommandLog.recordWrite(this, 1_000_000L, 10);
+        }
+
+        //Case C: Test if a negative threshold turns the log off
+        @Test(timeout = 1000)
+        public void verifyDisabled() {
+            Map<String, Long> overrides = new HashMap<>();
+            overrides.put("PING", -1L);
+            SlowCommandLog log = slowLog(0, overrides);
+            assertNull(log.begin(this, "PING"));
+            assertFalse(log.end(null, "alice", new String[] {"PING"}, 0));
+            assertNotNull(log.begin(this, "PONG"));
+            assertNull(slowLog(-1, new HashMap<>()).begin(this, "PONG"));
+        }
+
+        //Case D: Test if the log file is rotated once it reaches its size
+        @Test(timeout = 1000)
+        public void verifyRotation() throws IOException {
+            Path dir = Files.createTempDirectory("slowlog");
+            Path file = dir.resolve("slow.log");
+            try (OutputStream out = new SlowCommandLog.RotatingFile(file, 10, 2)) {
+                out.write("first...\n".getBytes(StandardCharsets.UTF_8));
+                out.write("second..\n".getBytes(StandardCharsets.UTF_8));
+                out.write("third...\n".getBytes(StandardCharsets.UTF_8));
+                out.write("fourth..\n".getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals("fourth..\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            assertEquals("third...\n", new String(Files.readAllBytes(dir.resolve("slow.log.1")), StandardCharsets.UTF_8));
+            assertEquals("second..\n", new String(Files.readAllBytes(dir.resolve("slow.log.2")), StandardCharsets.UTF_8));
+            assertFalse(Files.exists(dir.resolve("slow.log.3")));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- TimingWheelLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the TimingWheel class, such as firing timeouts on the right tick,
+ * across several turns of the wheel, and skipping cancelled timeouts.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class TimingWheelLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            System.setOut(originalOutput);
+        }
+
+        //Case A: Test if a timeout fires on the tick its deadline falls on, not before
+        @Test(timeout = 1000)
+        public void verifyFiresOnDeadline() {
+            TimingWheel wheel = new TimingWheel(100, 8, 0);
+            List<String> fired = new ArrayList<>();
+            wheel.scheduleAt(() -> fired.add("a"), 250);
+            wheel.advance(200);
+            assertTrue(fired.isEmpty());
+            wheel.advance(300);
+            assertEquals(List.of("a"), fired);
+            assertEquals(0, wheel.getPendingCount());
+        }
+
+        //Case B: Test if deadlines several turns of the wheel away wait for their turn
+        @Test(timeout = 1000)
+        public void verifyMultipleRounds() {
+            TimingWheel wheel = new TimingWheel(100, 8, 0);
+            List<Long> fired = new ArrayList<>();
+            long[] deadlines = {100, 900, 1700, 2500};
+            for (long deadline : deadlines) {
+                wheel.scheduleAt(() -> fired.add(deadline), deadline);
+            }
+            for (long now = 0; now <= 3000; now += 100) {
+                wheel.advance(now);
+                for (long deadline : fired) {
+                    assertTrue(deadline <= now);
+                }
+            }
+            assertEquals(List.of(100L, 900L, 1700L, 2500L), fired);
+        }
+
+        //Case C: Test if cancelled timeouts never run and are dropped from the count
+        @Test(timeout = 1000)
+        public void verifyCancel() {
+            TimingWheel wheel = new TimingWheel(100, 8, 0);
+            List<String> fired = new ArrayList<>();
+            TimingWheel.Timeout early = wheel.scheduleAt(() -> fired.add("early"), 100);
+            wheel.advance(0);
+            TimingWheel.Timeout late = wheel.scheduleAt(() -> fired.add("late"), 500);
+            early.cancel();
+            late.cancel();
+            wheel.scheduleAt(() -> fired.add("kept"), 300);
+            wheel.advance(1000);
+            assertEquals(List.of("kept"), fired);
+            assertEquals(0, wheel.getPendingCount());
+        }
+
+        //Case D: Test if a task can reschedule itself, as the idle check of a connection does
+        @Test(timeout = 1000)
+        public void verifyReschedule() {
+            TimingWheel wheel = new TimingWheel(100, 8, 0);
+            List<Long> runs = new ArrayList<>();
+            long[] now = {0};
+            Runnable[] check = new Runnable[1];
+            check[0] = () -> {
+                runs.add(now[0]);
+                if (runs.size() < 3) {
+                    wheel.scheduleAt(check[0], now[0] + 1000);
+                }
+            };
+            wheel.scheduleAt(check[0], 1000);
+            for (now[0] = 0; now[0] <= 5000; now[0] += 100) {
+                wheel.advance(now[0]);
+            }
+            assertEquals(List.of(1000L, 2000L, 3000L), runs);
+        }
+
+        //Case E: Test if a late tick still fires everything that came due while it slept
+        @Test(timeout = 1000)
+        public void verifyCatchUp() {
+            TimingWheel wheel = new TimingWheel(10, 4, 0);
+            List<Integer> fired = new ArrayList<>();
+            for (int i = 1; i <= 100; i++) {
+                int id = i;
+                wheel.scheduleAt(() -> fired.add(id), i * 10L);
+            }
+            wheel.advance(5000);
+            assertEquals(100, fired.size());
+            for (int i = 0; i < fired.size(); i++) {
+                assertEquals(i + 1, (int) fired.get(i));
+            }
+        }
+    }
+}
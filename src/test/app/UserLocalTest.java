@@ -8,7 +8,10 @@ import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
 import org.junit.runner.RunWith;
 import org.junit.runner.notification.Failure;
+import src.main.app.AuthExecutor;
 import src.main.app.User;
+import src.main.app.UserDirectory;
+import src.main.app.UserRegistry;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -17,7 +20,13 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -141,6 +150,148 @@ public class UserLocalTest {
 
             assertTrue(User.checkUserNameAvailability("A"));
         }
-    }
 
-}
\ No newline at end of file
+        //Case F: Test if usernames are unique and found regardless of case
+        @Test(timeout = 1000)
+        public void verifyUsernameCaseInsensitive() {
+            UserRegistry registry = new UserRegistry();
+            User user = new User("Jane", "JaneDoe", "C", "D", "E");
+            assertTrue(registry.register(user));
+            assertFalse(registry.register(new User("Other", "janedoe", "C", "D", "E")));
+            assertFalse(registry.isUsernameAvailable("JANEDOE"));
+            assertSame(user, registry.getByUsername("janeDOE"));
+            assertEquals(1, registry.size());
+        }
+
+        //Case G: Test if racing registrations of the same usernames only let one thread win each name
+        @Test(timeout = 10000)
+        public void verifyConcurrentRegistration() throws InterruptedException {
+            UserRegistry registry = new UserRegistry();
+            int threads = 8;
+            int names = 200;
+            AtomicInteger wins = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < names; i++) {
+                        if (registry.register(new User("N", "racer" + i, "C", "D", "E"))) {
+                            wins.incrementAndGet();
+                        }
+                        // Iterating while others register must never throw.
+                        registry.getUsers().iterator().hasNext();
+                    }
+                });
+                workers[t].start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(names, wins.get());
+            assertEquals(names, registry.size());
+            assertEquals(names, registry.getUsers().size());
+        }
+
+        //Case H: Test if the user directory tracks logins by version and caches its encoding
+        @Test(timeout = 1000)
+        public void verifyUserDirectoryVersions() {
+            UserDirectory directory = new UserDirectory();
+            directory.addUser("bob");
+            directory.addUser("alice");
+            directory.addUser("bob");
+            assertEquals(2, directory.getVersion());
+
+            UserDirectory.Snapshot first = directory.getSnapshot();
+            assertEquals("offline:alice;offline:bob", first.getEncoded());
+            assertEquals("USER_LIST,offline:alice;offline:bob", first.getUserList());
+            assertSame(first, directory.getSnapshot());
+            assertSame(first.getUserList(), directory.getSnapshot().getUserList());
+
+            directory.setOnline("bob", true);
+            directory.setOnline("bob", true);
+            directory.setOnline("alice", true);
+            directory.setOnline("bob", false);
+            assertEquals(5, directory.getVersion());
+            assertEquals("online:alice;offline:bob", directory.getSnapshot().getEncoded());
+            assertEquals("USER_LIST_FULL,5,online:alice;offline:bob", directory.getSnapshot().getVersionedUserList());
+
+            UserDirectory.Snapshot delta = directory.getChangesSince(2);
+            assertEquals(5, delta.getVersion());
+            assertEquals("online:alice;offline:bob", delta.getEncoded());
+            assertEquals("", directory.getChangesSince(5).getEncoded());
+            assertNull(directory.getChangesSince(6));
+        }
+
+        //Case I: Test if a client too far behind the change log is told to fetch the full list
+        @Test(timeout = 1000)
+        public void verifyUserDirectoryStaleVersion() {
+            UserDirectory directory = new UserDirectory();
+            for (int i = 0; i <= UserDirectory.CHANGE_LOG_SIZE; i++) {
+                directory.addUser("user" + i);
+            }
+            assertNull(directory.getChangesSince(0));
+            assertEquals("offline:user" + UserDirectory.CHANGE_LOG_SIZE, directory.getChangesSince(directory.getVersion() - 1).getEncoded());
+        }
+
+        //Case J: Test if logins checked concurrently on the auth executor still hash correctly
+        @Test(timeout = 5000)
+        public void verifyConcurrentLoginChecks() throws Exception {
+            AuthExecutor auth = new AuthExecutor(4, 256);
+            User user = new User("John Doe", "thejohndoe", "password1234", "Hello! I'm John Doe.", "johndoe.png");
+            List<CompletableFuture<Boolean>> checks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String password = i % 2 == 0 ? "password1234" : "wrong" + i;
+                checks.add(auth.submit(() -> user.login("thejohndoe", password)));
+            }
+            for (int i = 0; i < checks.size(); i++) {
+                assertEquals(i % 2 == 0, checks.get(i).get());
+            }
+            assertEquals(200, auth.getCompletedCount());
+            assertEquals(0, auth.getRejectedCount());
+            assertTrue(auth.getAverageLatencyMillis() >= auth.getAverageWaitMillis());
+        }
+
+        //Case K: Test if a saturated auth executor rejects at once and suggests a retry delay
+        @Test(timeout = 5000)
+        public void verifyAuthAdmissionControl() throws Exception {
+            AuthExecutor auth = new AuthExecutor(1, 2);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> running = auth.submit(() -> release.await(5, TimeUnit.SECONDS));
+            auth.submit(() -> true);
+            auth.submit(() -> true);
+            assertEquals(2, auth.getQueueDepth());
+
+            assertThrows(RejectedExecutionException.class, () -> auth.submit(() -> true));
+            assertEquals(1, auth.getRejectedCount());
+            assertTrue(auth.getRetryAfterMillis() >= AuthExecutor.MIN_RETRY_AFTER_MILLIS);
+
+            release.countDown();
+            assertTrue(running.get());
+        }
+
+        //Case L: Test if the list pushed on login reuses the cached encoding until it leaves half the change log
+        @Test(timeout = 1000)
+        public void verifyUserDirectoryRecentSnapshot() {
+            UserDirectory directory = new UserDirectory();
+            directory.addUser("alice");
+            UserDirectory.Snapshot cached = directory.getSnapshot();
+            directory.setOnline("alice", true);
+            directory.addUser("bob");
+            assertSame(cached, directory.getRecentSnapshot());
+            assertEquals("online:alice;offline:bob", directory.getChangesSince(cached.getVersion()).getEncoded());
+
+            for (int i = 0; i < UserDirectory.CHANGE_LOG_SIZE / 2; i++) {
+                directory.addUser("user" + i);
+            }
+            UserDirectory.Snapshot rebuilt = directory.getRecentSnapshot();
+            assertEquals(directory.getVersion(), rebuilt.getVersion());
+            assertSame(rebuilt, directory.getSnapshot());
+        }
+    }
+}
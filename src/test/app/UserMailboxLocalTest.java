@@ -0,0 +1,188 @@
+package src.test.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import src.main.app.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+/**
+ * Team Project -- UserMailboxLocalTest
+ *
+ * This program defines the test cases for verifying the behavior
+ * of the UserMailbox class, such as running one task at a time per user,
+ * keeping the order of posted tasks and passing work between mailboxes.
+ *
+ * @author Haiyan Xuan, lab sec L18
+ *
+ * @version December 8, 2024
+ */
+
+@RunWith(Enclosed.class)
+public class UserMailboxLocalTest {
+    //Main Method
+    public static void main(String[] args) {
+        Result result = JUnitCore.runClasses(TestCase.class);
+        if (result.wasSuccessful()) {
+            System.out.println("Excellent - Test ran successfully");
+        } else {
+            for (Failure failure : result.getFailures()) {
+                System.out.println(failure.toString());
+            }
+        }
+    }
+
+    /**
+     * Team Project -- TestCase
+     *
+     * This defines the test cases for this file
+     *
+     * @author Haiyan Xuan, lab sec L18
+     *
+     * @version December 8, 2024
+     */
+
+    public static class TestCase {
+        //Define field/methods to extract output from System.out
+        private final PrintStream originalOutput = System.out;
+
+        @SuppressWarnings("FieldCanBeLocal")
+        private ByteArrayOutputStream testOut;
+
+        @Before
+        public void outputStart() {
+            testOut = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(testOut));
+            UserMailbox.setEnabled(true);
+        }
+
+        @After
+        public void restoreInputAndOutput() {
+            UserMailbox.setEnabled(false);
+            System.setOut(originalOutput);
+        }
+
+        //Case A: Test if tasks posted from many threads run one at a time, each thread's in order
+        @Test(timeout = 10000)
+        public void verifySingleWriterOrdering() throws InterruptedException {
+            UserMailbox mailbox = new UserMailbox(new ForkJoinPool(4));
+            int threads = 4;
+            int perThread = 1000;
+            AtomicBoolean running = new AtomicBoolean();
+            AtomicInteger overlaps = new AtomicInteger();
+            int[] lastSeen = new int[threads];
+            List<Integer> outOfOrder = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(threads * perThread);
+
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                new Thread(() -> {
+                    for (int i = 1; i <= perThread; i++) {
+                        int seq = i;
+                        mailbox.execute(() -> {
+                            if (!running.compareAndSet(false, true)) {
+                                overlaps.incrementAndGet();
+                            }
+                            // Plain fields are safe here only because the mailbox runs one task at a time.
+                            if (lastSeen[thread] != seq - 1) {
+                                outOfOrder.add(seq);
+                            }
+                            lastSeen[thread] = seq;
+                            running.set(false);
+                            done.countDown();
+                        });
+                    }
+                }).start();
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(0, overlaps.get());
+            assertTrue(outOfOrder.isEmpty());
+            for (int seen : lastSeen) {
+                assertEquals(perThread, seen);
+            }
+        }
+
+        //Case B: Test if call() waits for the result and runs nested calls on the same mailbox directly
+        @Test(timeout = 1000)
+        public void verifyCallAndReentrancy() {
+            UserMailbox mailbox = new UserMailbox(new ForkJoinPool(2));
+            int result = mailbox.call(() -> mailbox.call(() -> 41) + 1);
+            assertEquals(42, result);
+        }
+
+        //Case C: Test if a failing task reports its exception to the caller and the mailbox keeps working
+        @Test(timeout = 1000)
+        public void verifyFailureIsolation() {
+            UserMailbox mailbox = new UserMailbox(new ForkJoinPool(2));
+            assertThrows(IllegalStateException.class, () -> mailbox.call(() -> {
+                throw new IllegalStateException("boom");
+            }));
+            assertEquals("ok", mailbox.call(() -> "ok"));
+        }
+
+        //Case D: Test if work posted to another user's mailbox runs there, after that user's earlier tasks
+        @Test(timeout = 5000)
+        public void verifyCrossUserMessage() throws InterruptedException {
+            User alice = new User("A", "B", "C", "D", "E");
+            User bob = new User("V", "W", "X", "Y", "Z");
+            List<String> bobLog = new ArrayList<>();
+            CountDownLatch delivered = new CountDownLatch(1);
+
+            UserMailbox.of(bob).execute(() -> bobLog.add("own"));
+            UserMailbox.of(alice).execute(() -> UserMailbox.of(bob).execute(() -> {
+                bobLog.add("from alice");
+                delivered.countDown();
+            }));
+
+            assertTrue(delivered.await(2, TimeUnit.SECONDS));
+            assertEquals(List.of("own", "from alice"), UserMailbox.of(bob).call(() -> new ArrayList<>(bobLog)));
+            assertSame(UserMailbox.of(bob), UserMailbox.of(bob));
+        }
+
+        //Case E: Test if call() runs on the calling thread when mailboxes are disabled
+        @Test(timeout = 1000)
+        public void verifyDisabledRunsInline() {
+            UserMailbox.setEnabled(false);
+            UserMailbox mailbox = new UserMailbox(new ForkJoinPool(1));
+            Thread caller = Thread.currentThread();
+            assertSame(caller, mailbox.call(Thread::currentThread));
+        }
+
+        //Case F: Test if the backlog drains back to zero once every task has run
+        @Test(timeout = 2000)
+        public void verifyPendingDrains() throws InterruptedException {
+            UserMailbox mailbox = new UserMailbox(new ForkJoinPool(2));
+            CountDownLatch release = new CountDownLatch(1);
+            mailbox.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < 200; i++) {
+                mailbox.execute(() -> { });
+            }
+            assertEquals(201, mailbox.getPendingCount());
+            release.countDown();
+            // The count drops just after each task finishes, so poll instead of joining a task.
+            while (mailbox.getPendingCount() > 0) {
+                Thread.sleep(1);
+            }
+        }
+    }
+}